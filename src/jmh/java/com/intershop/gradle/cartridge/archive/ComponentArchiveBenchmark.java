@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.archive;
+
+import com.intershop.gradle.cartridge.task.ZipComponent;
+import com.intershop.gradle.cartridge.util.PackagingMetrics;
+import org.gradle.api.Project;
+import org.gradle.api.file.FileCollection;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * Measures the packaging path of ZipComponent: the resolution
+ * of the archive spec with the exclusion of static libs and the
+ * creation of the archive by the ComponentArchiveWriter. The
+ * entries are resolved by ZipComponent itself.
+ *
+ * The entry cache is measured warm, filled by the first invocation,
+ * and cold, removed before each invocation.
+ *
+ * The parallel packaging of several archives is done by the Gradle
+ * worker API and is not part of this benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ComponentArchiveBenchmark {
+
+    private static final long PARALLEL_DEFLATE_THRESHOLD = 1024 * 1024;
+    private static final long ENTRY_CACHE_MAXSIZE = 4L * 1024 * 1024 * 1024;
+
+    /**
+     * Compression settings of the package.
+     */
+    public enum Compression {
+        STORE, FAST, DEFAULT, BEST, STORE_JARS
+    }
+
+    /**
+     * Compression mode of the writer.
+     */
+    public enum WriterMode {
+        SEQUENTIAL, PARALLEL_DEFLATE, ENTRY_CACHE_WARM, ENTRY_CACHE_COLD
+    }
+
+    @Param({"SMALL_FILES", "LARGE_FILES", "MIXED_JARS"})
+    public SyntheticCartridge.Layout layout;
+
+    @Param({"STORE", "FAST", "DEFAULT", "BEST", "STORE_JARS"})
+    public Compression compression;
+
+    @Param({"SEQUENTIAL", "PARALLEL_DEFLATE", "ENTRY_CACHE_WARM", "ENTRY_CACHE_COLD"})
+    public WriterMode mode;
+
+    private Path workDir;
+    private SyntheticCartridge cartridge;
+    private Path archive;
+    private Path cacheDir;
+
+    private FileCollection inputFiles;
+    private FileCollection staticLibs;
+
+    @Setup(Level.Trial)
+    public void createCartridge() throws IOException {
+        workDir = Files.createTempDirectory("cartridge-benchmark");
+        cartridge = SyntheticCartridge.create(workDir.resolve("cartridge"), layout);
+        archive = workDir.resolve("build").resolve("cartridge.zip");
+        cacheDir = workDir.resolve("cache");
+
+        // the entries are resolved from file collections like in the package task
+        Project project = ProjectBuilder.builder().withProjectDir(workDir.resolve("project").toFile()).build();
+        inputFiles = project.files(cartridge.getRoot().toFile());
+        List<File> libs = new ArrayList<>();
+        for(Path lib : cartridge.getStaticLibs()) {
+            libs.add(lib.toFile());
+        }
+        staticLibs = project.files(libs);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearEntryCache() throws IOException {
+        if(mode == WriterMode.ENTRY_CACHE_COLD) {
+            delete(cacheDir);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCartridge() throws IOException {
+        delete(workDir);
+    }
+
+    @Benchmark
+    public long createArchive() throws IOException {
+        ComponentArchiveSpec spec = createArchiveSpec();
+        new ComponentArchiveWriter().write(spec);
+        return Files.size(archive);
+    }
+
+    /**
+     * Resolves the archive spec in the same way as ZipComponent.
+     */
+    private ComponentArchiveSpec createArchiveSpec() {
+        ComponentArchiveSpec spec = new ComponentArchiveSpec(archive.toFile(), ZipComponent.FILE_MODE, ZipComponent.DIR_MODE);
+
+        switch(compression) {
+            case STORE:
+                spec.setStoreOnly(true);
+                break;
+            case FAST:
+                spec.setCompressionLevel(Deflater.BEST_SPEED);
+                break;
+            case BEST:
+                spec.setCompressionLevel(Deflater.BEST_COMPRESSION);
+                break;
+            case STORE_JARS:
+                spec.setStorePatterns(Collections.singletonList("*.jar"));
+                break;
+            default:
+                break;
+        }
+
+        if(mode == WriterMode.PARALLEL_DEFLATE) {
+            spec.setParallelDeflateThreshold(PARALLEL_DEFLATE_THRESHOLD);
+        } else if(mode == WriterMode.ENTRY_CACHE_WARM || mode == WriterMode.ENTRY_CACHE_COLD) {
+            spec.setEntryCacheDir(cacheDir.toFile());
+            spec.setEntryCacheMaxSize(ENTRY_CACHE_MAXSIZE);
+        }
+
+        ZipComponent.addEntries(spec, inputFiles, staticLibs, "", new PackagingMetrics("benchmark"));
+        // the packages are created with a reproducible file order
+        spec.sortEntries();
+        return spec;
+    }
+
+    private static void delete(Path dir) throws IOException {
+        if(! Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for(Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.archive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates a synthetic cartridge tree for benchmarks. The
+ * content is generated from a fixed seed, so that all runs
+ * use the same files.
+ */
+class SyntheticCartridge {
+
+    private static final String[] WORDS = {
+            "intershop", "cartridge", "pipeline", "component", "isml", "template", "property", "import",
+            "<xml>", "</xml>", "value", "=", "true", "false", "name", "{", "}", ";", "\n", "\t" };
+
+    private static final int MB = 1024 * 1024;
+
+    /**
+     * Layout of the synthetic cartridge.
+     */
+    enum Layout {
+        /** many small text files, eg. templates and pipelines */
+        SMALL_FILES,
+        /** few large files */
+        LARGE_FILES,
+        /** compressed jars, half of them are static libs, and small files */
+        MIXED_JARS
+    }
+
+    private final Path root;
+    private final List<Path> staticLibs = new ArrayList<>();
+    private final Random random = new Random(4711);
+
+    private SyntheticCartridge(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Creates the files of the layout in the root directory.
+     *
+     * @param root      root directory of the cartridge
+     * @param layout    layout of the cartridge
+     * @return the created cartridge
+     * @throws IOException if a file can not be written
+     */
+    static SyntheticCartridge create(Path root, Layout layout) throws IOException {
+        SyntheticCartridge cartridge = new SyntheticCartridge(root);
+        switch(layout) {
+            case SMALL_FILES:
+                cartridge.createTextFiles("templates", 5000, 1024, 8 * 1024);
+                break;
+            case LARGE_FILES:
+                cartridge.createTextFiles("data", 4, 32 * MB, 32 * MB);
+                break;
+            case MIXED_JARS:
+                cartridge.createJars("lib", 200, 50 * 1024, 500 * 1024);
+                cartridge.createTextFiles("pipelines", 1000, 1024, 8 * 1024);
+                break;
+            default:
+                throw new IllegalArgumentException("Layout " + layout + " is not supported.");
+        }
+        return cartridge;
+    }
+
+    Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Static libs of the cartridge, they are excluded from the package.
+     *
+     * @return list of static lib files
+     */
+    List<Path> getStaticLibs() {
+        return staticLibs;
+    }
+
+    private void createTextFiles(String dirName, int count, int minSize, int maxSize) throws IOException {
+        for(int i = 0; i < count; i++) {
+            Path dir = root.resolve(dirName).resolve("dir" + (i % 50));
+            Files.createDirectories(dir);
+            try (OutputStream out = Files.newOutputStream(dir.resolve("file" + i + ".txt"))) {
+                writeText(out, size(minSize, maxSize));
+            }
+        }
+    }
+
+    private void createJars(String dirName, int count, int minSize, int maxSize) throws IOException {
+        Path dir = root.resolve(dirName);
+        Files.createDirectories(dir);
+        for(int i = 0; i < count; i++) {
+            // the content of a jar is already compressed
+            byte[] content = new byte[size(minSize, maxSize)];
+            random.nextBytes(content);
+            Path jar = dir.resolve("library" + i + ".jar");
+            Files.write(jar, content);
+            if(i % 2 == 0) {
+                staticLibs.add(jar);
+            }
+        }
+    }
+
+    private void writeText(OutputStream out, int size) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        int written = 0;
+        while(written < size) {
+            int length = 0;
+            while(length < buffer.length - 16 && written + length < size) {
+                byte[] word = WORDS[random.nextInt(WORDS.length)].getBytes(StandardCharsets.UTF_8);
+                int wordLength = Math.min(word.length, size - written - length);
+                System.arraycopy(word, 0, buffer, length, wordLength);
+                length += wordLength;
+                if(length < buffer.length && written + length < size) {
+                    buffer[length++] = ' ';
+                }
+            }
+            out.write(buffer, 0, length);
+            written += length;
+        }
+    }
+
+    private int size(int minSize, int maxSize) {
+        return minSize == maxSize ? minSize : minSize + random.nextInt(maxSize - minSize);
+    }
+}
@@ -15,49 +15,59 @@
  */
 package com.intershop.gradle.cartridge;
 
+import com.intershop.gradle.cartridge.extension.ComponentPackage;
 import com.intershop.gradle.cartridge.extension.IntershopExtension;
+import com.intershop.gradle.cartridge.task.ExplodeComponent;
+import com.intershop.gradle.cartridge.task.PackagingMetricsReport;
+import com.intershop.gradle.cartridge.task.PublicationChecksums;
 import com.intershop.gradle.cartridge.task.ValidateCartridge;
+import com.intershop.gradle.cartridge.task.ValidateCartridges;
+import com.intershop.gradle.cartridge.task.WatchComponents;
 import com.intershop.gradle.cartridge.task.ZipComponent;
-import com.intershop.gradle.cartridge.util.CartridgePluginModelData;
-import org.apache.log4j.Logger;
-import org.gradle.api.InvalidUserDataException;
+import com.intershop.gradle.cartridge.util.ArtifactChecksums;
+import com.intershop.gradle.cartridge.util.ComponentArtifacts;
+import com.intershop.gradle.cartridge.util.DescriptorEnricher;
+import com.intershop.gradle.cartridge.util.UnchangedArtifactFilter;
+import org.gradle.api.DomainObjectSet;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.component.SoftwareComponent;
 import org.gradle.api.plugins.ExtensionContainer;
+import org.gradle.api.publish.PublicationArtifact;
 import org.gradle.api.publish.PublicationContainer;
 import org.gradle.api.publish.PublishingExtension;
+import org.gradle.api.publish.ivy.IvyArtifact;
 import org.gradle.api.publish.ivy.IvyConfiguration;
 import org.gradle.api.publish.ivy.IvyPublication;
+import org.gradle.api.publish.ivy.plugins.IvyPublishPlugin;
+import org.gradle.api.publish.ivy.tasks.PublishToIvyRepository;
+import org.gradle.api.publish.maven.MavenArtifact;
 import org.gradle.api.publish.maven.MavenPublication;
+import org.gradle.api.publish.maven.plugins.MavenPublishPlugin;
+import org.gradle.api.publish.maven.tasks.PublishToMavenRepository;
 import org.gradle.api.publish.plugins.PublishingPlugin;
-import org.gradle.model.Defaults;
-import org.gradle.model.ModelMap;
-import org.gradle.model.RuleSource;
-import org.gradle.model.internal.core.ModelPath;
-import org.gradle.model.internal.core.ModelReference;
-import org.gradle.model.internal.core.ModelRegistrations;
-import org.gradle.model.internal.registry.ModelRegistry;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.util.GUtil;
 import org.jetbrains.annotations.NotNull;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
-import javax.inject.Inject;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
 
 public class CartridgePlugin implements Plugin<Project> {
 
     private final static String VALIDATETASK_NAME = "validateCartridge";
-    private final ModelRegistry modelRegistry;
-
-    @Inject
-    public CartridgePlugin(ModelRegistry modelRegistry) {
-        this.modelRegistry = modelRegistry;
-    }
+    private final static String VALIDATEALLTASK_NAME = "validateCartridges";
+    private final static String METRICSTASK_NAME = "packagingMetrics";
+    private final static String WATCHTASK_NAME = "watchComponents";
+    private final static String EXPLODETASK_NAME = "explodeComponents";
 
     @Override
     public void apply(@NotNull final Project project) {
@@ -72,238 +82,428 @@ public class CartridgePlugin implements Plugin<Project> {
         }
         final IntershopExtension extension = extensions.getByType(IntershopExtension.class);
 
+        final List<String> zipTaskNames = new ArrayList<>();
         extension.getPackages().getPackageContainer().all(pkg -> {
-            ZipComponent task = project.getTasks().maybeCreate(pkg.getTaskName(), ZipComponent.class);
-            task.setGroup(IntershopExtension.ICMCOMPONENT_GROUP_NAME);
+            if(project.getTasks().getNames().contains(pkg.getTaskName())) {
+                return;
+            }
+
+            // limit the number of packages, that are created at the same time
+            final int taskIndex = zipTaskNames.size();
+            zipTaskNames.add(pkg.getTaskName());
+
+            // the task is created and configured only, if it is required
+            project.getTasks().register(pkg.getTaskName(), ZipComponent.class, task -> {
+                task.setGroup(IntershopExtension.ICMCOMPONENT_GROUP_NAME);
+
+                task.setInputFiles(pkg.getSources());
+                task.provideReleaseDirName(pkg.getReleaseDirPathProvider());
+                task.provideArtifactBaseName(pkg.getBaseNameProvider());
+                task.provideArtifactAppendix(pkg.getNameExtensionProvider());
+                task.provideArtifactClassifier(pkg.getOsExtensionPProvider());
+                if(GUtil.isTrue(project.getVersion())) {
+                    task.setVersion(project.getVersion().toString());
+                }
+                task.setStaticLibs(extension.getStaticLibs());
+                task.provideCompressionLevel(pkg.getCompressionLevelProvider());
+                task.provideStoreOnly(pkg.getStoreOnlyProvider());
+                task.provideStorePatterns(pkg.getStorePatternsProvider());
+                task.provideParallelDeflateThreshold(pkg.getParallelDeflateThresholdProvider());
+                task.provideParallelPackaging(extension.getParallelPackagingProvider());
+                task.provideIncrementalPackaging(extension.getIncrementalPackagingProvider());
+                task.providePackagingCache(extension.getPackagingCacheProvider());
+                task.providePackagingCacheDir(extension.getPackagingCacheDirProvider());
+                task.providePackagingCacheMaxSize(extension.getPackagingCacheMaxSizeProvider());
+
+                // the settings of the zip task are not lazy, the task can be configured afterwards
+                if(extension.isReproducibleArchives()) {
+                    task.setPreserveFileTimestamps(false);
+                    task.setReproducibleFileOrder(true);
+                }
+
+                // packages of a matrix share the compressed entries of common files
+                if(! pkg.getMatrixName().isEmpty()) {
+                    task.provideSharedEntryCacheDir(project.getLayout().getBuildDirectory().dir(IntershopExtension.SHARED_ENTRIES_DIR));
+                }
+
+                task.mustRunAfter((Callable<Object>) () -> {
+                    int maxParallelPackages = extension.getMaxParallelPackages();
+                    if(extension.isParallelPackaging() && maxParallelPackages > 0 && taskIndex >= maxParallelPackages) {
+                        return zipTaskNames.get(taskIndex - maxParallelPackages);
+                    }
+                    return Collections.emptyList();
+                });
+
+                // the first package of a matrix compresses the common files for all other packages
+                task.mustRunAfter((Callable<Object>) () -> {
+                    String matrixTaskName = getMatrixTaskName(extension, pkg, zipTaskNames);
+                    return matrixTaskName.equals(pkg.getTaskName()) ? Collections.emptyList() : matrixTaskName;
+                });
+            });
+
+            // the exploded package contains the same entries as the archive
+            project.getTasks().register(pkg.getExplodeTaskName(), ExplodeComponent.class, task -> {
+                task.setGroup(IntershopExtension.ICMCOMPONENT_GROUP_NAME);
+
+                task.setInputFiles(pkg.getSources());
+                task.provideReleaseDirName(pkg.getReleaseDirPathProvider());
+                task.setStaticLibs(extension.getStaticLibs());
+                task.provideHardLinks(extension.getExplodedHardLinksProvider());
+                task.provideDestinationDir(project.getLayout().getBuildDirectory().dir(
+                        IntershopExtension.EXPLODED_DIR + "/" + pkg.getName()));
+            });
+        });
+
+        if(! project.getTasks().getNames().contains(VALIDATETASK_NAME)) {
+            project.getTasks().register(VALIDATETASK_NAME, ValidateCartridge.class, task -> {
+                task.setGroup(IntershopExtension.ICMCOMPONENT_GROUP_NAME);
+
+                task.setCartridgeName(project.getName());
+                task.setLocalFiles(extension.getPackages().getLocalFiles());
+                task.setShareFiles(extension.getPackages().getShareFiles());
+                task.setCartridgeFiles(extension.getPackages().getCartridgeFiles());
+                task.setStaticLibs(extension.getStaticLibs());
+                extension.getPackages().getPackageContainer().all(pkg ->
+                        task.addPackage(pkg.getNameExtensionProvider(), pkg.getSources()));
+            });
+        }
 
-            task.setInputFiles(pkg.getSources());
-            task.provideReleaseDirName(pkg.getReleaseDirPathProvider());
-            task.provideArtifactBaseName(pkg.getBaseNameProvider());
-            task.provideArtifactAppendix(pkg.getNameExtensionProvider());
-            task.provideArtifactClassifier(pkg.getOsExtensionPProvider());
-            if(GUtil.isTrue(project.getVersion())) {
-                task.setVersion(project.getVersion().toString());
+        if(! project.getTasks().getNames().contains(EXPLODETASK_NAME)) {
+            project.getTasks().register(EXPLODETASK_NAME, task -> {
+                task.setGroup(IntershopExtension.ICMCOMPONENT_GROUP_NAME);
+                task.setDescription("Synchronizes the exploded directories of all exploded packages.");
+
+                task.dependsOn((Callable<List<String>>) () -> {
+                    List<String> taskNames = new ArrayList<>();
+                    extension.getPackages().getPackageContainer().forEach(pkg -> {
+                        if(pkg.isExploded()) {
+                            taskNames.add(pkg.getExplodeTaskName());
+                        }
+                    });
+                    return taskNames;
+                });
+            });
+        }
+
+        // the packages are updated after each change of the sources
+        if(! project.getTasks().getNames().contains(WATCHTASK_NAME)) {
+            project.getTasks().register(WATCHTASK_NAME, WatchComponents.class, task -> {
+                task.setGroup(IntershopExtension.ICMCOMPONENT_GROUP_NAME);
+
+                task.setPackageContainer(extension.getPackages().getPackageContainer());
+                extension.getPackages().getPackageContainer().all(pkg -> task.addPackageTasks(pkg,
+                        project.getTasks().withType(ZipComponent.class).named(pkg.getTaskName()),
+                        project.getTasks().withType(ExplodeComponent.class).named(pkg.getExplodeTaskName())));
+                task.dependsOn((Callable<List<String>>) task::getZipTaskNames);
+                task.dependsOn((Callable<List<String>>) task::getExplodeTaskNames);
+            });
+        }
+
+        // one validation of all cartridges is added to the root project
+        final Project rootProject = project.getRootProject();
+        if(! rootProject.getTasks().getNames().contains(VALIDATEALLTASK_NAME)) {
+            rootProject.getTasks().register(VALIDATEALLTASK_NAME, ValidateCartridges.class, task -> {
+                task.setGroup(IntershopExtension.ICMCOMPONENT_GROUP_NAME);
+
+                // the validation tasks of the cartridges are not created for the configuration
+                rootProject.getAllprojects().forEach(p -> p.getPlugins().withType(CartridgePlugin.class, plugin ->
+                        task.addCartridge(p.getTasks().withType(ValidateCartridge.class).named(VALIDATETASK_NAME))));
+            });
+        }
+
+        // metrics of all cartridges are aggregated in the root project
+        if(! rootProject.getTasks().getNames().contains(METRICSTASK_NAME)) {
+            rootProject.getTasks().register(METRICSTASK_NAME, PackagingMetricsReport.class, task -> {
+                task.setGroup(IntershopExtension.ICMCOMPONENT_GROUP_NAME);
+
+                // only the reports of the configured tasks are aggregated
+                task.addMetricsFile(rootProject.getTasks().withType(ValidateCartridges.class)
+                        .named(VALIDATEALLTASK_NAME).map(ValidateCartridges::getMetricsFile));
+                task.mustRunAfter(VALIDATEALLTASK_NAME);
+
+                rootProject.getAllprojects().forEach(p -> p.getPlugins().withType(CartridgePlugin.class, plugin -> {
+                    task.addMetricsFile(p.getTasks().withType(ValidateCartridge.class)
+                            .named(VALIDATETASK_NAME).map(ValidateCartridge::getMetricsFile));
+
+                    IntershopExtension cartridgeExtension = p.getExtensions().getByType(IntershopExtension.class);
+                    cartridgeExtension.getPackages().getPackageContainer().all(pkg ->
+                            task.addMetricsFile(p.getTasks().withType(ZipComponent.class)
+                                    .named(pkg.getTaskName()).map(ZipComponent::getMetricsFile)));
+
+                    // the report contains the metrics of the current build, if the tasks are executed
+                    task.mustRunAfter((Callable<List<String>>) () -> {
+                        List<String> taskPaths = new ArrayList<>();
+                        taskPaths.add(p.absoluteProjectPath(VALIDATETASK_NAME));
+                        cartridgeExtension.getPackages().getPackageContainer().forEach(pkg ->
+                                taskPaths.add(p.absoluteProjectPath(pkg.getTaskName())));
+                        return taskPaths;
+                    });
+                }));
+            });
+        }
+
+        // publications are configured after the evaluation of the build script,
+        // because the configuration of the extension is used for the names and descriptors
+        // the artifacts are resolved once for both publications
+        final ComponentArtifacts artifacts = new ComponentArtifacts(project, extension);
+        project.getPlugins().withType(MavenPublishPlugin.class, plugin ->
+                project.afterEvaluate(p -> configureMavenPublication(project, extension, artifacts)));
+        project.getPlugins().withType(IvyPublishPlugin.class, plugin ->
+                project.afterEvaluate(p -> configureIvyPublication(project, extension, artifacts)));
+    }
+
+    private static void configureMavenPublication(final Project project, final IntershopExtension extension,
+                                                  final ComponentArtifacts artifacts) {
+        PublicationContainer publications = project.getExtensions().getByType(PublishingExtension.class).getPublications();
+        String publicationName = extension.getMavenPublicationNameProvider().getOrElse(IntershopExtension.DEFAULT_MAVENPUBLICATION);
+
+        if(publications.findByName(publicationName) != null) {
+            project.getLogger().debug("Publication {} exists already and is not configured by CartridgePlugin!", publicationName);
+            return;
+        }
+
+        // add maven artifacts to publication
+        MavenPublication publication = publications.create(publicationName, MavenPublication.class, mvnPublication -> {
+            // add zip packages, the tasks are not created for the configuration
+            for(ComponentArtifacts.PackageArtifact pkg : artifacts.getPackages()) {
+                mvnPublication.artifact(pkg.getFile(), mvnArtifact -> {
+                    mvnArtifact.setExtension(ZipComponent.ZIP_EXTENSION);
+                    mvnArtifact.builtBy(getPublishedZipTask(project, pkg));
+                    mvnArtifact.setClassifier(pkg.getMavenClassifier());
+                });
+            }
+
+            // add static files
+            for(ComponentArtifacts.FileArtifact staticLib : artifacts.getStaticLibs()) {
+                mvnPublication.artifact(staticLib.getFile(), mvnArtifact -> {
+                    mvnArtifact.setClassifier(staticLib.getName());
+                    mvnArtifact.setExtension("jar");
+                });
             }
-            task.setStaticLibs(extension.getStaticLibs());
+
+            // add deployment file - if exists
+            ComponentArtifacts.FileArtifact deploymentFile = artifacts.getDeploymentFile();
+            if(deploymentFile != null) {
+                mvnPublication.artifact(deploymentFile.getFile(), mvnArtifact -> mvnArtifact.setClassifier("deploy-gradle"));
+            }
+
+            // add jar from java project - if available
+            SoftwareComponent javaComponent = project.getComponents().findByName("java");
+            if(javaComponent != null) {
+                mvnPublication.from(javaComponent);
+            }
+
+            // add description and displayname to pom descriptor
+            mvnPublication.getPom().withXml(xmlProvider -> {
+                DescriptorEnricher enricher = DescriptorEnricher.forPom(
+                        extension.getDisplayNameProvider().getOrElse(""), extension.getDescriptionProvider().getOrElse(""));
+                StringBuilder xml = xmlProvider.asString();
+                String enrichedXml = enricher.transform(xml);
+                xml.setLength(0);
+                xml.append(enrichedXml);
+            });
         });
 
-        ValidateCartridge validateTask = project.getTasks().maybeCreate(VALIDATETASK_NAME, ValidateCartridge.class);
-        validateTask.setGroup(IntershopExtension.ICMCOMPONENT_GROUP_NAME);
-
-        if(modelRegistry!= null && modelRegistry.state(new ModelPath("staticLibs")) == null) {
-            modelRegistry.register(
-                    ModelRegistrations.bridgedInstance(
-                            ModelReference.of("cartridgeData", CartridgePluginModelData.class),
-                                new CartridgePluginModelData(
-                                        extension.getIvyPublicationNameProvider(),
-                                        extension.getMavenPublicationNameProvider(),
-                                        extension.getDisplayNameProvider(),
-                                        extension.getDescriptionProvider(),
-                                        extension.getDeploymentFileProvider(),
-                                        extension.getStaticLibs(),
-                                        project.getComponents()))
-                            .descriptor("Model of External Cartridge Data.")
-                            .build());
+        TaskProvider<PublicationChecksums> checksumsTask = registerChecksumsTask(project, publicationName,
+                publication.getArtifacts(), CartridgePlugin::getMavenArtifactKey);
+
+        if(extension.isSkipUnchangedArtifacts()) {
+            UnchangedArtifactFilter<MavenArtifact> filter = new UnchangedArtifactFilter<>(
+                    publication.getArtifacts(), CartridgePlugin::getMavenArtifactKey);
+
+            // the publication of a publish task is available after the configuration
+            project.getTasks().withType(PublishToMavenRepository.class).configureEach(task -> {
+                task.dependsOn((Callable<Object>) () ->
+                        task.getPublication() == publication ? checksumsTask : Collections.emptyList());
+                task.doFirst(t -> {
+                    // the metadata of a SNAPSHOT upload references only the files of this upload
+                    if(task.getPublication() == publication && ! ArtifactChecksums.isSnapshot(publication.getVersion())) {
+                        filter.removeUnchanged(readChecksums(checksumsTask), task.getRepository().getUrl(),
+                                artifact -> ArtifactChecksums.getMavenPath(publication.getGroupId(), publication.getArtifactId(),
+                                        publication.getVersion(), artifact.getClassifier(), artifact.getExtension()));
+                    }
+                });
+                restoreAfterTask(project, task, filter);
+            });
         }
     }
 
-    @SuppressWarnings("unused")
-    static class Rules extends RuleSource {
-
-        private static final Logger LOGGER = Logger.getLogger(Rules.class);
-
-        @Defaults
-        public static void configurePublishingPublications(ModelMap<Task> tasks,
-                                                           final PublishingExtension publishing,
-                                                           final CartridgePluginModelData cartridgeData) {
-
-            PublicationContainer publications = publishing.getPublications();
-            // add maven artifacts to publication
-            try {
-                publications.create(
-                        cartridgeData.getMavenPublicationNameProvider().getOrElse(IntershopExtension.DEFAULT_MAVENPUBLICATION),
-                        MavenPublication.class,
-                        mvnPublication -> {
-                            // add zip packages from tasks
-                            for(ZipComponent task : tasks.withType(ZipComponent.class).values()) {
-                                mvnPublication.artifact(task, mvnArtifact -> {
-                                    mvnArtifact.setExtension(task.getExtension());
-
-                                    // an empty string for classifier is not allowed
-                                    if(! task.getArtifactClassifier().isEmpty()) {
-                                        mvnArtifact.setClassifier(task.getArtifactAppendix() + "_" + task.getArtifactClassifier());
-                                    } else {
-                                        mvnArtifact.setClassifier(task.getArtifactAppendix());
-                                    }
-                                });
-                            }
-
-                            // add static files
-                            for(File file : cartridgeData.getStaticLibs().getFiles()) {
-                                mvnPublication.artifact(file, mvnArtifact -> {
-                                    mvnArtifact.setClassifier(getFileNamewithoutExtension(file.getName()));
-                                    mvnArtifact.setExtension("jar");
-                                });
-                            }
-
-                            // add deployment file - if exists
-                            File deploymentFile = cartridgeData.getDepoymentFileProvider().get().getAsFile();
-                            if(deploymentFile.exists() && deploymentFile.isFile()) {
-                                mvnPublication.artifact(deploymentFile, mvnArtifact -> mvnArtifact.setClassifier("deploy-gradle"));
-                            }
-
-                            // add jar from java project - if available
-                            SoftwareComponent javaComponent = cartridgeData.getComponents().findByName("java");
-                            if(javaComponent != null) {
-                                mvnPublication.from(javaComponent);
-                            }
-
-                            // add description and displayname to pom descriptor
-                            mvnPublication.getPom().withXml(xmlProvider -> {
-                                Element root = xmlProvider.asElement();
-                                Document document = root.getOwnerDocument();
-
-                                NodeList propertiesList = root.getElementsByTagName("properties");
-                                Node propertiesNode;
-                                if(propertiesList.getLength() > 0) {
-                                    propertiesNode = propertiesList.item(0);
-                                } else {
-                                    propertiesNode = document.createElement("properties");
-                                    propertiesNode = root.appendChild(propertiesNode);
-                                }
-
-                                NodeList propNodes = propertiesNode.getChildNodes();
-                                if(propNodes.getLength() > 0) {
-                                    if(propNodes.item(0).getNodeType() == Node.ELEMENT_NODE) {
-                                        Element propsElement = (Element)propNodes.item(0);
-                                        NodeList displayNameList = propsElement.getElementsByTagName("cartridge-displayname");
-                                        if(displayNameList.getLength() > 0) {
-                                            propertiesNode.removeChild(displayNameList.item(0));
-                                        }
-                                        NodeList descriptionList = propsElement.getElementsByTagName("cartridge-description");
-                                        if(descriptionList.getLength() > 0) {
-                                            propertiesNode.removeChild(descriptionList.item(0));
-                                        }
-                                    }
-                                }
-                                if(! cartridgeData.getDisplayNameProvider().getOrElse("").isEmpty()) {
-                                    Element displayname = document.createElement("cartridge-displayname");
-                                    displayname.appendChild(document.createTextNode(cartridgeData.getDisplayNameProvider().get()));
-                                    propertiesNode.appendChild(displayname);
-                                }
-                                if(! cartridgeData.getDescriptionProvider().getOrElse("").isEmpty()) {
-                                    Element description = document.createElement("cartridge-description");
-                                    description.appendChild(document.createTextNode(cartridgeData.getDescriptionProvider().get()));
-                                    propertiesNode.appendChild(description);
-                                }
-                            });
-                        });
-            } catch (InvalidUserDataException ex) {
-                LOGGER.debug("Maven Publishing Plugin is not applied for CartridgePlugin!");
+    private static void configureIvyPublication(final Project project, final IntershopExtension extension,
+                                                final ComponentArtifacts artifacts) {
+        PublicationContainer publications = project.getExtensions().getByType(PublishingExtension.class).getPublications();
+        String publicationName = extension.getIvyPublicationNameProvider().getOrElse(IntershopExtension.DEFAULT_IVYPUBLICATION);
+
+        if(publications.findByName(publicationName) != null) {
+            project.getLogger().debug("Publication {} exists already and is not configured by CartridgePlugin!", publicationName);
+            return;
+        }
+
+        // add ivy artifacts to publication
+        IvyPublication publication = publications.create(publicationName, IvyPublication.class, ivyPublication -> {
+            // add zip packages, the tasks are not created for the configuration
+            for(ComponentArtifacts.PackageArtifact pkg : artifacts.getPackages()) {
+                ivyPublication.artifact(pkg.getFile(), ivyArtifact -> {
+                    ivyArtifact.setName(pkg.getBaseName());
+                    ivyArtifact.setType(pkg.getType());
+                    ivyArtifact.setExtension(ZipComponent.ZIP_EXTENSION);
+                    ivyArtifact.builtBy(getPublishedZipTask(project, pkg));
+                    // an empty string for classifier is not allowed
+                    if(pkg.getIvyClassifier() != null) {
+                        ivyArtifact.setClassifier(pkg.getIvyClassifier());
+                    }
+                });
+            }
+
+            // add static files
+            // add configurations
+            if(! artifacts.getStaticLibs().isEmpty()) {
+                ivyPublication.configurations(config -> {
+                    IvyConfiguration defaultConf = config.maybeCreate("default");
+                    IvyConfiguration compileConf = config.maybeCreate("compile");
+                    defaultConf.extend("compile");
+                });
+            }
+
+            // add artifacts
+            for(ComponentArtifacts.FileArtifact staticLib : artifacts.getStaticLibs()) {
+                ivyPublication.artifact(staticLib.getFile(), ivyArtifact -> {
+                    ivyArtifact.setName(staticLib.getName());
+                    ivyArtifact.setConf("compile");
+                });
+            }
+
+            // add deployment file - if exists
+            ComponentArtifacts.FileArtifact deploymentFile = artifacts.getDeploymentFile();
+            if(deploymentFile != null) {
+                ivyPublication.artifact(deploymentFile.getFile(), ivyArtifact -> {
+                    ivyArtifact.setName(deploymentFile.getName());
+                    ivyArtifact.setType("deploy-gradle");
+                });
             }
 
-            // add ivy artifacts to publication
-            try {
-                publications.create(
-                        cartridgeData.getIvyPublicationNameProvider().getOrElse(IntershopExtension.DEFAULT_IVYPUBLICATION),
-                        IvyPublication.class,
-                        ivyPublication -> {
-                            // add zip packages from tasks
-                            for(ZipComponent task : tasks.withType(ZipComponent.class).values()) {
-                                ivyPublication.artifact(task, ivyArtifact -> {
-                                    ivyArtifact.setName(task.getArtifactBaseName());
-                                    ivyArtifact.setType(task.getArtifactAppendix());
-                                    // an empty string for classifier is not allowed
-                                    if(! task.getArtifactClassifier().isEmpty()) {
-                                        ivyArtifact.setClassifier(task.getArtifactClassifier());
-                                    }
-                                });
-                            }
-
-                            // add static files
-                            // add configurations
-                            if(cartridgeData.getStaticLibs().getFiles().size() > 0) {
-                                ivyPublication.configurations(config -> {
-                                    IvyConfiguration defaultConf = config.maybeCreate("default");
-                                    IvyConfiguration compileConf = config.maybeCreate("compile");
-                                    defaultConf.extend("compile");
-                                });
-                            }
-
-                            // add artifacts
-                            for(File file : cartridgeData.getStaticLibs().getFiles()) {
-                                ivyPublication.artifact(file, ivyArtifact -> {
-                                    ivyArtifact.setName(getFileNamewithoutExtension(file.getName()));
-                                    ivyArtifact.setConf("compile");
-                                });
-                            }
-
-                            // add deployment file - if exists
-                            File deploymentFile = cartridgeData.getDepoymentFileProvider().get().getAsFile();
-                            if(deploymentFile.exists() && deploymentFile.isFile()) {
-                                ivyPublication.artifact(deploymentFile, ivyArtifact -> {
-                                    ivyArtifact.setName(getFileNamewithoutExtension(deploymentFile.getName()));
-                                    ivyArtifact.setType("deploy-gradle");
-                                });
-                            }
-
-                            // add jar from java project - if available
-                            SoftwareComponent javaComponent = cartridgeData.getComponents().findByName("java");
-                            if(javaComponent != null) {
-                                ivyPublication.from(javaComponent);
-                            }
-
-                            // add description and displayname to ivy descriptor
-                            ivyPublication.getDescriptor().withXml(xmlProvider -> {
-                                Element root = xmlProvider.asElement();
-                                Document document = root.getOwnerDocument();
-
-                                root.setAttribute("xmlns:e", "http://ant.apache.org/ivy/extra");
-                                NodeList infoList = root.getElementsByTagName("info");
-                                if(infoList.getLength() > 0) {
-                                    Node infoElement = infoList.item(0);
-
-                                    if(! cartridgeData.getDescriptionProvider().getOrElse("").isEmpty()) {
-                                        if(infoElement.getNodeType() == Node.ELEMENT_NODE) {
-                                            NodeList descriptionList = ((Element)infoElement).getElementsByTagName("description");
-                                            if(descriptionList.getLength() > 0) {
-                                                infoElement.removeChild(descriptionList.item(0));
-                                            }
-                                        }
-
-                                        Node description = document.createElement("description");
-                                        description.appendChild(document.createTextNode(cartridgeData.getDescriptionProvider().get()));
-                                        infoElement.appendChild(description);
-                                    }
-                                    if(! cartridgeData.getDisplayNameProvider().getOrElse("").isEmpty()) {
-                                        if(infoElement.getNodeType() == Node.ELEMENT_NODE) {
-                                            NodeList displayNameList = ((Element)infoElement).getElementsByTagName("e:displayName");
-                                            if(displayNameList.getLength() > 0) {
-                                                infoElement.removeChild(displayNameList.item(0));
-                                            }
-                                        }
-
-                                        Node displayName = document.createElement("e:displayName");
-                                        displayName.appendChild(document.createTextNode(cartridgeData.getDisplayNameProvider().get()));
-                                        infoElement.appendChild(displayName);
-                                    }
-                                } else {
-                                    LOGGER.error("Ivy descriptor does not contain info element!");
-                                }
-                            });
-                        });
-
-            } catch (InvalidUserDataException ex) {
-                LOGGER.debug("Ivy Publishing Plugin is not applied for CartridgePlugin!");
+            // add jar from java project - if available
+            SoftwareComponent javaComponent = project.getComponents().findByName("java");
+            if(javaComponent != null) {
+                ivyPublication.from(javaComponent);
             }
+
+            // add description and displayname to ivy descriptor
+            ivyPublication.getDescriptor().withXml(xmlProvider -> {
+                DescriptorEnricher enricher = DescriptorEnricher.forIvy(
+                        extension.getDisplayNameProvider().getOrElse(""), extension.getDescriptionProvider().getOrElse(""));
+                StringBuilder xml = xmlProvider.asString();
+                String enrichedXml = enricher.transform(xml);
+                if(! enricher.isContainerFound()) {
+                    project.getLogger().error("Ivy descriptor does not contain info element!");
+                }
+                xml.setLength(0);
+                xml.append(enrichedXml);
+            });
+        });
+
+        TaskProvider<PublicationChecksums> checksumsTask = registerChecksumsTask(project, publicationName,
+                publication.getArtifacts(), CartridgePlugin::getIvyArtifactKey);
+
+        if(extension.isSkipUnchangedArtifacts()) {
+            UnchangedArtifactFilter<IvyArtifact> filter = new UnchangedArtifactFilter<>(
+                    publication.getArtifacts(), CartridgePlugin::getIvyArtifactKey);
+
+            // the publication of a publish task is available after the configuration
+            project.getTasks().withType(PublishToIvyRepository.class).configureEach(task -> {
+                task.dependsOn((Callable<Object>) () ->
+                        task.getPublication() == publication ? checksumsTask : Collections.emptyList());
+                task.doFirst(t -> {
+                    if(task.getPublication() == publication) {
+                        filter.removeUnchanged(readChecksums(checksumsTask), task.getRepository().getUrl(),
+                                artifact -> ArtifactChecksums.getIvyPath(extension.getIvyArtifactPattern(),
+                                        publication.getOrganisation(), publication.getModule(), publication.getRevision(),
+                                        artifact.getName() != null ? artifact.getName() : publication.getModule(),
+                                        artifact.getType(), artifact.getClassifier(), artifact.getExtension()));
+                    }
+                });
+                restoreAfterTask(project, task, filter);
+            });
         }
+    }
 
-        private static String getFileNamewithoutExtension(String filename) {
-            int extensionIndex = filename.lastIndexOf(".");
-            if (extensionIndex == -1)
-                return filename;
+    /**
+     * The skipped artifacts are added to the publication again after the
+     * publish task, also if the upload fails. Other publish tasks of the
+     * publication get the complete publication.
+     */
+    private static void restoreAfterTask(Project project, Task publishTask, UnchangedArtifactFilter<?> filter) {
+        project.getGradle().getTaskGraph().afterTask(task -> {
+            if(task == publishTask) {
+                filter.restore();
+            }
+        });
+    }
 
-            return filename.substring(0, extensionIndex);
+    /**
+     * Registers the task for the checksum manifest of a publication.
+     * The artifacts are added, when the task is created.
+     */
+    private static <T extends PublicationArtifact> TaskProvider<PublicationChecksums> registerChecksumsTask(
+            Project project, String publicationName, DomainObjectSet<T> artifacts, Function<T, String> keyFunction) {
+        String taskName = "generateChecksumsFor" + GUtil.toCamelCase(publicationName) + "Publication";
+        return project.getTasks().register(taskName, PublicationChecksums.class, task -> {
+            task.setGroup(IntershopExtension.ICMCOMPONENT_GROUP_NAME);
+            task.setPublicationName(publicationName);
+            task.provideManifestFile(project.getLayout().getBuildDirectory().file(String.join("/",
+                    IntershopExtension.PUBLICATIONS_DIR, publicationName, IntershopExtension.PUBLICATION_CHECKSUMS)));
+            for(T artifact : artifacts) {
+                task.addArtifact(keyFunction.apply(artifact), artifact.getFile());
+                task.dependsOn(artifact);
+            }
+        });
+    }
+
+    private static Map<String, String> readChecksums(TaskProvider<PublicationChecksums> checksumsTask) {
+        return PublicationChecksums.readChecksums(checksumsTask.get().getManifestFile().get().getAsFile());
+    }
+
+    /**
+     * The zip task of a matrix, that runs first. It is the task of the package,
+     * that was added first, so that the order does not conflict with the limit
+     * of parallel packages.
+     *
+     * @return the task name of the first package of the matrix or the task name of the package itself
+     */
+    private static String getMatrixTaskName(IntershopExtension extension, ComponentPackage pkg, List<String> zipTaskNames) {
+        if(pkg.getMatrixName().isEmpty()) {
+            return pkg.getTaskName();
+        }
+
+        Set<String> matrixTaskNames = new HashSet<>();
+        for(ComponentPackage matrixPkg : extension.getPackages().getMatrixPackages(pkg.getMatrixName())) {
+            matrixTaskNames.add(matrixPkg.getTaskName());
         }
+        for(String taskName : zipTaskNames) {
+            if(matrixTaskNames.contains(taskName)) {
+                return taskName;
+            }
+        }
+        return pkg.getTaskName();
+    }
+
+    /**
+     * The zip task of a published package. The task checks, that it
+     * creates the archive file, that is used by the publication.
+     *
+     * @return provides the zip task of the package
+     */
+    private static TaskProvider<Task> getPublishedZipTask(Project project, ComponentArtifacts.PackageArtifact pkg) {
+        TaskProvider<Task> zipTask = project.getTasks().named(pkg.getTaskName());
+        zipTask.configure(task -> ((ZipComponent) task).setPublishedArchiveFile(pkg.getFile()));
+        return zipTask;
+    }
+
+    private static String getMavenArtifactKey(MavenArtifact artifact) {
+        return String.join(":", String.valueOf(artifact.getClassifier()), String.valueOf(artifact.getExtension()));
+    }
+
+    private static String getIvyArtifactKey(IvyArtifact artifact) {
+        return String.join(":", String.valueOf(artifact.getName()), String.valueOf(artifact.getType()),
+                String.valueOf(artifact.getClassifier()), String.valueOf(artifact.getExtension()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.archive;
+
+import com.intershop.gradle.cartridge.util.PackagingMetrics;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * This class describes the content of a component
+ * archive. It is resolved in the task and handed over
+ * to the archive writer, also across worker boundaries.
+ */
+public class ComponentArchiveSpec implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final File archiveFile;
+    private final int fileMode;
+    private final int dirMode;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private boolean storeOnly = false;
+    private final List<String> storePatterns = new ArrayList<>();
+    private long parallelDeflateThreshold = 0;
+    private long entryTime = -1;
+
+    private File entryCacheDir = null;
+    private long entryCacheMaxSize = 0;
+
+    private PackagingMetrics metrics = null;
+    private File metricsFile = null;
+    private String metricsTaskPath = null;
+
+    private File previousArchive = null;
+    private final Set<String> changedFiles = new HashSet<>();
+
+    public ComponentArchiveSpec(File archiveFile, int fileMode, int dirMode) {
+        this.archiveFile = archiveFile;
+        this.fileMode = fileMode;
+        this.dirMode = dirMode;
+    }
+
+    /**
+     * Creates a specification with the settings of this
+     * specification. Entries, changed files and metrics
+     * are not copied.
+     *
+     * @return a new specification without entries
+     */
+    public ComponentArchiveSpec copySettings() {
+        ComponentArchiveSpec spec = new ComponentArchiveSpec(archiveFile, fileMode, dirMode);
+        spec.compressionLevel = compressionLevel;
+        spec.storeOnly = storeOnly;
+        spec.storePatterns.addAll(storePatterns);
+        spec.parallelDeflateThreshold = parallelDeflateThreshold;
+        spec.entryTime = entryTime;
+        spec.entryCacheDir = entryCacheDir;
+        spec.entryCacheMaxSize = entryCacheMaxSize;
+        return spec;
+    }
+
+    public File getArchiveFile() {
+        return archiveFile;
+    }
+
+    public int getFileMode() {
+        return fileMode;
+    }
+
+    public int getDirMode() {
+        return dirMode;
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Compression level of all compressed entries.
+     *
+     * @return level 0-9 or -1 for the default level
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * All entries are stored without compression, if this is true.
+     *
+     * @return true if entries are not compressed
+     */
+    public boolean isStoreOnly() {
+        return storeOnly;
+    }
+
+    public void setStoreOnly(boolean storeOnly) {
+        this.storeOnly = storeOnly;
+    }
+
+    /**
+     * Entries matching one of these glob patterns are
+     * stored without compression.
+     *
+     * @return list of glob patterns
+     */
+    public List<String> getStorePatterns() {
+        return Collections.unmodifiableList(storePatterns);
+    }
+
+    public void setStorePatterns(List<String> patterns) {
+        storePatterns.clear();
+        storePatterns.addAll(patterns);
+    }
+
+    /**
+     * Files with this size or larger are compressed block-parallel.
+     *
+     * @return threshold in bytes, 0 disables parallel deflate
+     */
+    public long getParallelDeflateThreshold() {
+        return parallelDeflateThreshold;
+    }
+
+    public void setParallelDeflateThreshold(long parallelDeflateThreshold) {
+        this.parallelDeflateThreshold = parallelDeflateThreshold;
+    }
+
+    /**
+     * Fixed timestamp of all entries. The timestamps of
+     * the source files are used, if no time is configured.
+     *
+     * @return time in milliseconds or -1 for the timestamps of the files
+     */
+    public long getEntryTime() {
+        return entryTime;
+    }
+
+    public void setEntryTime(long entryTime) {
+        this.entryTime = entryTime;
+    }
+
+    /**
+     * Timestamp of an entry in the archive.
+     *
+     * @param entry entry of this specification
+     * @return the fixed time or the time of the source file
+     */
+    public long getEntryTime(Entry entry) {
+        return entryTime >= 0 ? entryTime : entry.getFile().lastModified();
+    }
+
+    /**
+     * Sorts all entries by the path, so that the order
+     * does not depend on the file system.
+     */
+    public void sortEntries() {
+        entries.sort(Comparator.comparing(Entry::getPath));
+    }
+
+    /**
+     * Directory of the content addressed cache for compressed entries.
+     *
+     * @return the cache directory or null, if the cache is not used
+     */
+    public File getEntryCacheDir() {
+        return entryCacheDir;
+    }
+
+    public void setEntryCacheDir(File entryCacheDir) {
+        this.entryCacheDir = entryCacheDir;
+    }
+
+    /**
+     * Maximum size of the entry cache in bytes.
+     *
+     * @return maximum size of the cache
+     */
+    public long getEntryCacheMaxSize() {
+        return entryCacheMaxSize;
+    }
+
+    public void setEntryCacheMaxSize(long entryCacheMaxSize) {
+        this.entryCacheMaxSize = entryCacheMaxSize;
+    }
+
+    /**
+     * Metrics of the package, the values of the
+     * archive creation are added by the writer.
+     *
+     * @return the metrics or null, if no metrics are recorded
+     */
+    public PackagingMetrics getMetrics() {
+        return metrics;
+    }
+
+    public File getMetricsFile() {
+        return metricsFile;
+    }
+
+    public String getMetricsTaskPath() {
+        return metricsTaskPath;
+    }
+
+    /**
+     * Enables the metrics report of the archive creation.
+     *
+     * @param metrics       metrics with the values of the resolution of the spec
+     * @param metricsFile   target file of the JSON report
+     * @param taskPath      path of the packaging task
+     */
+    public void setMetrics(PackagingMetrics metrics, File metricsFile, String taskPath) {
+        this.metrics = metrics;
+        this.metricsFile = metricsFile;
+        this.metricsTaskPath = taskPath;
+    }
+
+    /**
+     * The previous archive is used for an incremental update.
+     * Entries of unchanged files are copied without a new compression.
+     *
+     * @return the previous archive or null
+     */
+    public File getPreviousArchive() {
+        return previousArchive;
+    }
+
+    public void setPreviousArchive(File previousArchive) {
+        this.previousArchive = previousArchive;
+    }
+
+    /**
+     * Marks a source file as changed since the creation
+     * of the previous archive.
+     *
+     * @param file  changed, added or removed file
+     */
+    public void addChangedFile(File file) {
+        changedFiles.add(file.getAbsolutePath());
+    }
+
+    public boolean isChanged(File file) {
+        return changedFiles.contains(file.getAbsolutePath());
+    }
+
+    /**
+     * Adds a directory entry to the archive.
+     *
+     * @param path  path of the directory in the archive
+     * @param dir   source directory
+     */
+    public void addDirectory(String path, File dir) {
+        entries.add(new Entry(path, dir, true));
+    }
+
+    /**
+     * Adds a file entry to the archive.
+     *
+     * @param path  path of the file in the archive
+     * @param file  source file
+     */
+    public void addFile(String path, File file) {
+        entries.add(new Entry(path, file, false));
+    }
+
+    /**
+     * A single entry of the archive.
+     */
+    public static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String path;
+        private final File file;
+        private final boolean directory;
+
+        Entry(String path, File file, boolean directory) {
+            this.path = path;
+            this.file = file;
+            this.directory = directory;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.archive;
+
+import org.apache.commons.compress.archivers.zip.UnixStat;
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.archivers.zip.ZipUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a component archive from a resolved
+ * archive specification. The entries are streamed
+ * directly from file channels into the archive channel,
+ * the transfer buffer is reused for all entries.
+ *
+ * Large files are compressed block-parallel on the common
+ * fork join pool, if a parallel deflate threshold is configured.
+ *
+ * If a cache directory is configured, compressed entries are taken
+ * from the content addressed entry cache and added as raw data.
+ *
+ * If the specification contains a previous archive, the
+ * compressed data of unchanged entries is copied from this
+ * archive. The result is the same as a complete rebuild.
+ */
+public class ComponentArchiveWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private int fileCount = 0;
+    private long bytesRead = 0;
+
+    /**
+     * Number of files in the last written archive.
+     *
+     * @return number of file entries
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * Size of all source files of the last written archive.
+     *
+     * @return uncompressed size in bytes
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Creates the archive of the specification. An existing
+     * archive will be replaced.
+     *
+     * @param spec  the resolved archive specification
+     * @throws IOException if the archive can not be written
+     */
+    public void write(ComponentArchiveSpec spec) throws IOException {
+        Path archivePath = spec.getArchiveFile().toPath();
+        fileCount = 0;
+        bytesRead = 0;
+        Files.createDirectories(archivePath.getParent());
+
+        EntryCache entryCache = spec.getEntryCacheDir() != null ?
+                new EntryCache(spec.getEntryCacheDir().toPath(), spec.getEntryCacheMaxSize()) : null;
+
+        // the archive is replaced only after it was written completely,
+        // the previous archive can be the target of this update
+        Path tmpPath = Files.createTempFile(archivePath.getParent(), archivePath.getFileName().toString(), ".tmp");
+        File previousArchive = spec.getPreviousArchive();
+        try {
+            if(previousArchive == null || ! previousArchive.isFile()) {
+                writeArchive(spec, tmpPath, null, entryCache);
+            } else {
+                try (ZipFile previous = new ZipFile(previousArchive)) {
+                    writeArchive(spec, tmpPath, previous, entryCache);
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tmpPath);
+            throw ex;
+        }
+        Files.move(tmpPath, archivePath, StandardCopyOption.REPLACE_EXISTING);
+
+        if(entryCache != null) {
+            entryCache.trim();
+        }
+    }
+
+    private void writeArchive(ComponentArchiveSpec spec, Path archivePath, ZipFile previous, EntryCache entryCache) throws IOException {
+        try (FileChannel archiveChannel = FileChannel.open(archivePath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(archiveChannel)) {
+
+            zipOut.setUseZip64(Zip64Mode.AsNeeded);
+            zipOut.setLevel(spec.getCompressionLevel());
+
+            EntryMethodSelector methodSelector = new EntryMethodSelector(spec);
+
+            for(ComponentArchiveSpec.Entry entry : spec.getEntries()) {
+                if(entry.isDirectory()) {
+                    writeDirectory(zipOut, entry, spec.getDirMode(), spec.getEntryTime(entry));
+                    continue;
+                }
+
+                fileCount++;
+                bytesRead += entry.getFile().length();
+
+                int method = methodSelector.getMethod(entry.getPath());
+                if(previous == null || spec.isChanged(entry.getFile())
+                        || ! copyFromPrevious(zipOut, entry, spec.getFileMode(), spec.getEntryTime(entry), method, previous)) {
+                    writeFile(zipOut, spec, entry, method, entryCache);
+                }
+            }
+        }
+    }
+
+    private void writeDirectory(ZipArchiveOutputStream zipOut, ComponentArchiveSpec.Entry entry, int dirMode, long time) throws IOException {
+        ZipArchiveEntry archiveEntry = new ZipArchiveEntry(entry.getPath() + "/");
+        archiveEntry.setTime(time);
+        archiveEntry.setUnixMode(UnixStat.DIR_FLAG | dirMode);
+
+        zipOut.putArchiveEntry(archiveEntry);
+        zipOut.closeArchiveEntry();
+    }
+
+    private void writeFile(ZipArchiveOutputStream zipOut, ComponentArchiveSpec spec,
+                           ComponentArchiveSpec.Entry entry, int method, EntryCache entryCache) throws IOException {
+        File file = entry.getFile();
+
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ZipArchiveEntry archiveEntry = createFileEntry(entry, spec.getFileMode(), spec.getEntryTime(entry), method, fileChannel.size());
+
+            long threshold = spec.getParallelDeflateThreshold();
+            boolean parallel = method == ZipArchiveEntry.DEFLATED && threshold > 0 && archiveEntry.getSize() >= threshold;
+
+            if(method == ZipArchiveEntry.DEFLATED && entryCache != null) {
+                writeCached(zipOut, spec, entry, archiveEntry, parallel, entryCache);
+                return;
+            }
+            if(parallel) {
+                writeParallelDeflated(zipOut, spec, entry, archiveEntry);
+                return;
+            }
+
+            zipOut.putArchiveEntry(archiveEntry);
+
+            buffer.clear();
+            while(fileChannel.read(buffer) != -1) {
+                zipOut.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+
+            zipOut.closeArchiveEntry();
+        }
+    }
+
+    private void writeParallelDeflated(ZipArchiveOutputStream zipOut, ComponentArchiveSpec spec,
+                                       ComponentArchiveSpec.Entry entry, ZipArchiveEntry archiveEntry) throws IOException {
+        Path deflatedPath = Files.createTempFile(spec.getArchiveFile().getParentFile().toPath(),
+                entry.getFile().getName(), ".deflate");
+        try {
+            ParallelDeflater deflater = new ParallelDeflater(ForkJoinPool.commonPool(), spec.getCompressionLevel());
+            try (FileChannel out = FileChannel.open(deflatedPath, StandardOpenOption.WRITE)) {
+                archiveEntry.setCrc(deflater.deflate(entry.getFile().toPath(), out));
+            }
+            archiveEntry.setCompressedSize(Files.size(deflatedPath));
+
+            try (InputStream rawData = Files.newInputStream(deflatedPath)) {
+                zipOut.addRawArchiveEntry(archiveEntry, rawData);
+            }
+        } finally {
+            Files.deleteIfExists(deflatedPath);
+        }
+    }
+
+    private void writeCached(ZipArchiveOutputStream zipOut, ComponentArchiveSpec spec, ComponentArchiveSpec.Entry entry,
+                             ZipArchiveEntry archiveEntry, boolean parallel, EntryCache entryCache) throws IOException {
+        Path source = entry.getFile().toPath();
+        int level = spec.getCompressionLevel();
+
+        String key = entryCache.createKey(source, level, parallel, buffer);
+        entryCache.addEntry(key, (out, digest) -> parallel ?
+                        new ParallelDeflater(ForkJoinPool.commonPool(), level).deflate(source, out, digest) :
+                        deflate(source, out, level, digest),
+                archiveEntry, zipOut::addRawArchiveEntry);
+    }
+
+    /**
+     * Compresses a file into a raw deflate stream. The digest
+     * is calculated from the same data as the deflate stream.
+     *
+     * @return CRC-32 of the uncompressed data
+     */
+    private long deflate(Path source, FileChannel out, int level, MessageDigest digest) throws IOException {
+        CRC32 crc = new CRC32();
+        Deflater deflater = new Deflater(level, true);
+
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            // the stream is not closed, because this would close the target channel
+            DeflaterOutputStream deflaterOut = new DeflaterOutputStream(Channels.newOutputStream(out), deflater, BUFFER_SIZE);
+
+            buffer.clear();
+            while(in.read(buffer) != -1) {
+                crc.update(buffer.array(), 0, buffer.position());
+                digest.update(buffer.array(), 0, buffer.position());
+                deflaterOut.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            deflaterOut.finish();
+            deflaterOut.flush();
+        } finally {
+            deflater.end();
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Copies the compressed data of an unchanged entry from the
+     * previous archive. Size and time of the source file are
+     * verified, so that the entry is the same as a new one.
+     * With a fixed entry time, changed files are detected only
+     * by the changed files of the specification.
+     */
+    private boolean copyFromPrevious(ZipArchiveOutputStream zipOut, ComponentArchiveSpec.Entry entry,
+                                     int fileMode, long time, int method, ZipFile previous) throws IOException {
+        ZipArchiveEntry previousEntry = previous.getEntry(entry.getPath());
+        if(previousEntry == null || previousEntry.isDirectory()) {
+            return false;
+        }
+
+        ZipArchiveEntry archiveEntry = createFileEntry(entry, fileMode, time, method, entry.getFile().length());
+        if(previousEntry.getSize() != archiveEntry.getSize()
+                || previousEntry.getMethod() != method
+                || ! Arrays.equals(ZipUtil.toDosTime(previousEntry.getTime()), ZipUtil.toDosTime(archiveEntry.getTime()))) {
+            return false;
+        }
+
+        archiveEntry.setCrc(previousEntry.getCrc());
+        archiveEntry.setCompressedSize(previousEntry.getCompressedSize());
+
+        try (InputStream rawData = previous.getRawInputStream(previousEntry)) {
+            zipOut.addRawArchiveEntry(archiveEntry, rawData);
+        }
+        return true;
+    }
+
+    private static ZipArchiveEntry createFileEntry(ComponentArchiveSpec.Entry entry, int fileMode, long time, int method, long size) {
+        ZipArchiveEntry archiveEntry = new ZipArchiveEntry(entry.getPath());
+        archiveEntry.setTime(time);
+        archiveEntry.setUnixMode(UnixStat.FILE_FLAG | fileMode);
+        archiveEntry.setMethod(method);
+        // the size is known, so that no zip64 extra field is reserved for small entries
+        archiveEntry.setSize(size);
+        return archiveEntry;
+    }
+}
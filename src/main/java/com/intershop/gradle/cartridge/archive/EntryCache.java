@@ -0,0 +1,335 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.archive;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Content addressed cache of compressed archive entries.
+ * The key of an entry is the SHA-256 hash of the file content
+ * and the compression settings. A cache file contains the CRC-32
+ * of the uncompressed data followed by the raw deflate stream,
+ * so that it can be added to an archive without a new compression.
+ *
+ * The hash of a new entry is calculated again from the data that
+ * is compressed, not from the deflate stream. An entry of a file,
+ * that was changed after the calculation of the key, is not added
+ * to the cache.
+ *
+ * The cache can be used by several builds at the same time. New
+ * files are moved atomically into the cache, the least recently
+ * used files are removed, if the cache exceeds the maximum size.
+ */
+class EntryCache {
+
+    private static final Logger LOGGER = Logging.getLogger(EntryCache.class);
+
+    private static final String ENTRY_SUFFIX = ".deflate";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int HEADER_SIZE = 8;
+    private static final long TMP_MAX_AGE = TimeUnit.HOURS.toMillis(1);
+
+    private final Path cacheDir;
+    private final long maxSize;
+
+    private boolean modified = false;
+
+    /**
+     * Compresses a file into a channel.
+     */
+    interface Compressor {
+        /**
+         * @param out       channel for the raw deflate stream
+         * @param digest    must be updated with all data that is compressed
+         * @return CRC-32 of the uncompressed data
+         * @throws IOException if the data can not be compressed
+         */
+        long compress(FileChannel out, MessageDigest digest) throws IOException;
+    }
+
+    EntryCache(Path cacheDir, long maxSize) {
+        this.cacheDir = cacheDir;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Calculates the key of a file for the compression settings.
+     *
+     * @param file      source file
+     * @param level     compression level
+     * @param parallel  true if the file is compressed block-parallel
+     * @param buffer    transfer buffer for the file content
+     * @return key of the cache entry
+     * @throws IOException if the file can not be read
+     */
+    String createKey(Path file, int level, boolean parallel, ByteBuffer buffer) throws IOException {
+        MessageDigest digest = createDigest();
+
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            while(fileChannel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        StringBuilder key = new StringBuilder(toHex(digest.digest()));
+        key.append("-l").append(level);
+        if(parallel) {
+            key.append("-p").append(ParallelDeflater.BLOCK_SIZE);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Adds the cached entry with the key as raw data to the archive.
+     * If the entry is not available, the compressor creates a new one.
+     *
+     * @param key           key of the entry
+     * @param compressor    compresses the file, if the entry is not available
+     * @param archiveEntry  archive entry with the uncompressed size
+     * @param rawConsumer   adds the raw data to the archive
+     * @throws IOException if the entry can not be read or written or the file was changed
+     */
+    void addEntry(String key, Compressor compressor, ZipArchiveEntry archiveEntry, RawEntryConsumer rawConsumer) throws IOException {
+        Path entryPath = getEntryPath(key);
+
+        if(Files.isRegularFile(entryPath)) {
+            try {
+                touch(entryPath);
+                addRawData(entryPath, archiveEntry, rawConsumer);
+                return;
+            } catch (NoSuchFileException ex) {
+                // removed by another build in the meantime
+                LOGGER.debug("Cache entry {} was removed, it will be created again.", key);
+            }
+        }
+
+        Path tmpPath = createEntry(key, entryPath, compressor);
+        try {
+            addRawData(tmpPath, archiveEntry, rawConsumer);
+            moveEntry(tmpPath, entryPath);
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+        modified = true;
+    }
+
+    /**
+     * Removes the least recently used entries, until the
+     * size of the cache is not larger than the maximum size.
+     * Left over temporary files of other builds are removed too.
+     * A failure is logged only, the archive is not affected.
+     */
+    void trim() {
+        if(! modified || ! Files.isDirectory(cacheDir)) {
+            return;
+        }
+
+        try {
+            removeLeastRecentlyUsed();
+        } catch (IOException ex) {
+            LOGGER.warn("Packaging cache {} was not cleaned up: {}", cacheDir, ex.getMessage());
+        }
+    }
+
+    private void removeLeastRecentlyUsed() throws IOException {
+
+        List<CacheFile> entries = new ArrayList<>();
+        long size = 0;
+        long now = System.currentTimeMillis();
+
+        try (DirectoryStream<Path> prefixDirs = Files.newDirectoryStream(cacheDir, Files::isDirectory)) {
+            for(Path prefixDir : prefixDirs) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(prefixDir)) {
+                    for(Path file : files) {
+                        BasicFileAttributes attrs;
+                        try {
+                            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                        } catch (NoSuchFileException ex) {
+                            // removed by another build in the meantime
+                            continue;
+                        }
+                        String name = file.getFileName().toString();
+
+                        if(name.endsWith(ENTRY_SUFFIX)) {
+                            entries.add(new CacheFile(file, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                            size += attrs.size();
+                        } else if(name.endsWith(TMP_SUFFIX) && now - attrs.lastModifiedTime().toMillis() > TMP_MAX_AGE) {
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                }
+            }
+        }
+
+        if(size <= maxSize) {
+            return;
+        }
+
+        entries.sort(Comparator.comparingLong(CacheFile::getLastUsed));
+        int removed = 0;
+        for(CacheFile entry : entries) {
+            if(size <= maxSize) {
+                break;
+            }
+            Files.deleteIfExists(entry.getPath());
+            size -= entry.getSize();
+            removed++;
+        }
+        LOGGER.info("{} least recently used entries removed from packaging cache {}.", removed, cacheDir);
+    }
+
+    private Path getEntryPath(String key) {
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+    }
+
+    /**
+     * Creates a temporary entry. The hash of the data that is compressed
+     * must be the hash of the key, otherwise the file was changed after the
+     * calculation of the key and the entry is removed.
+     */
+    private Path createEntry(String key, Path entryPath, Compressor compressor) throws IOException {
+        Files.createDirectories(entryPath.getParent());
+        Path tmpPath = Files.createTempFile(entryPath.getParent(), entryPath.getFileName().toString(), TMP_SUFFIX);
+
+        try (FileChannel out = FileChannel.open(tmpPath, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.position(HEADER_SIZE);
+            MessageDigest digest = createDigest();
+            long crc = compressor.compress(out, digest);
+            if(! key.startsWith(toHex(digest.digest()) + "-")) {
+                throw new IOException("File was changed while it was compressed, the entry " + key + " is not cached.");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(crc);
+            header.flip();
+            while(header.hasRemaining()) {
+                out.write(header, HEADER_SIZE - header.remaining());
+            }
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tmpPath);
+            throw ex;
+        }
+        return tmpPath;
+    }
+
+    private static void addRawData(Path entryPath, ZipArchiveEntry archiveEntry, RawEntryConsumer rawConsumer) throws IOException {
+        try (FileChannel in = FileChannel.open(entryPath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while(header.hasRemaining()) {
+                if(in.read(header) < 0) {
+                    throw new IOException("Cache entry " + entryPath + " is corrupt.");
+                }
+            }
+            header.flip();
+
+            archiveEntry.setCrc(header.getLong());
+            archiveEntry.setCompressedSize(in.size() - HEADER_SIZE);
+
+            InputStream rawData = Channels.newInputStream(in);
+            rawConsumer.accept(archiveEntry, rawData);
+        }
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available.", ex);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static void moveEntry(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            LOGGER.debug("Last usage of cache entry {} was not updated.", path, ex);
+        }
+    }
+
+    /**
+     * Adds raw data with known CRC and sizes to an archive.
+     */
+    interface RawEntryConsumer {
+        void accept(ZipArchiveEntry archiveEntry, InputStream rawData) throws IOException;
+    }
+
+    private static class CacheFile {
+
+        private final Path path;
+        private final long size;
+        private final long lastUsed;
+
+        CacheFile(Path path, long size, long lastUsed) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+
+        Path getPath() {
+            return path;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        long getLastUsed() {
+            return lastUsed;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.archive;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selects the compression method of an archive entry
+ * from the store configuration of the archive spec.
+ */
+class EntryMethodSelector {
+
+    private final boolean storeOnly;
+
+    private final List<PathMatcher> nameMatchers = new ArrayList<>();
+    private final List<PathMatcher> pathMatchers = new ArrayList<>();
+
+    EntryMethodSelector(ComponentArchiveSpec spec) {
+        this.storeOnly = spec.isStoreOnly();
+
+        for(String pattern : spec.getStorePatterns()) {
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            if(pattern.contains("/")) {
+                pathMatchers.add(matcher);
+            } else {
+                nameMatchers.add(matcher);
+            }
+        }
+    }
+
+    /**
+     * Returns the compression method for the path of a file entry.
+     *
+     * @param path  path of the entry in the archive
+     * @return ZipArchiveEntry.STORED or ZipArchiveEntry.DEFLATED
+     */
+    int getMethod(String path) {
+        if(storeOnly) {
+            return ZipArchiveEntry.STORED;
+        }
+        if(! nameMatchers.isEmpty()) {
+            int nameIndex = path.lastIndexOf('/');
+            if(matches(nameMatchers, nameIndex < 0 ? path : path.substring(nameIndex + 1))) {
+                return ZipArchiveEntry.STORED;
+            }
+        }
+        if(! pathMatchers.isEmpty() && matches(pathMatchers, path)) {
+            return ZipArchiveEntry.STORED;
+        }
+        return ZipArchiveEntry.DEFLATED;
+    }
+
+    private static boolean matches(List<PathMatcher> matchers, String path) {
+        for(PathMatcher matcher : matchers) {
+            if(matcher.matches(Paths.get(path))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
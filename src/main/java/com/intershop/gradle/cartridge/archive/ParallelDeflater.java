@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a file into a raw deflate stream with
+ * blocks, that are compressed in parallel on a fork join
+ * pool. Each block is primed with the last 32K of the previous
+ * block and ends with a sync flush, so the concatenation of all
+ * blocks is one standard deflate stream.
+ */
+class ParallelDeflater {
+
+    static final int BLOCK_SIZE = 512 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int level;
+
+    ParallelDeflater(ForkJoinPool pool, int level) {
+        this.pool = pool;
+        this.level = level;
+    }
+
+    /**
+     * Compresses the source file into the target channel.
+     *
+     * @param source    uncompressed file
+     * @param out       channel for the raw deflate stream
+     * @return CRC-32 of the uncompressed data
+     * @throws IOException if the file can not be read or the channel can not be written
+     */
+    long deflate(Path source, WritableByteChannel out) throws IOException {
+        return deflate(source, out, null);
+    }
+
+    /**
+     * Compresses the source file into the target channel and
+     * calculates the digest of the data that is compressed.
+     *
+     * @param source    uncompressed file
+     * @param out       channel for the raw deflate stream
+     * @param digest    digest for the uncompressed data or null
+     * @return CRC-32 of the uncompressed data
+     * @throws IOException if the file can not be read or the channel can not be written
+     */
+    long deflate(Path source, WritableByteChannel out, MessageDigest digest) throws IOException {
+        CRC32 crc = new CRC32();
+        Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+        int maxPending = pool.getParallelism() * 2;
+
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+
+            long remaining = in.size();
+            byte[] dictionary = null;
+
+            while(remaining > 0) {
+                byte[] block = new byte[(int) Math.min(BLOCK_SIZE, remaining)];
+                readFully(in, block);
+                remaining -= block.length;
+                crc.update(block, 0, block.length);
+                if(digest != null) {
+                    digest.update(block, 0, block.length);
+                }
+
+                pending.addLast(pool.submit(new BlockTask(block, dictionary, remaining == 0, level)));
+                dictionary = Arrays.copyOfRange(block, Math.max(0, block.length - DICTIONARY_SIZE), block.length);
+
+                if(pending.size() >= maxPending) {
+                    writeFully(out, pending.removeFirst().join());
+                }
+            }
+
+            while(! pending.isEmpty()) {
+                writeFully(out, pending.removeFirst().join());
+            }
+        } finally {
+            for(ForkJoinTask<byte[]> task : pending) {
+                task.cancel(true);
+            }
+        }
+
+        return crc.getValue();
+    }
+
+    private static void readFully(FileChannel in, byte[] block) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        while(buffer.hasRemaining()) {
+            if(in.read(buffer) < 0) {
+                throw new IOException("File was changed while it was compressed.");
+            }
+        }
+    }
+
+    private static void writeFully(WritableByteChannel out, byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while(buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Compresses one block of the file.
+     */
+    private static class BlockTask implements Callable<byte[]> {
+
+        private final byte[] block;
+        private final byte[] dictionary;
+        private final boolean last;
+        private final int level;
+
+        BlockTask(byte[] block, byte[] dictionary, boolean last, int level) {
+            this.block = block;
+            this.dictionary = dictionary;
+            this.last = last;
+            this.level = level;
+        }
+
+        @Override
+        public byte[] call() {
+            Deflater deflater = new Deflater(level, true);
+            try {
+                if(dictionary != null) {
+                    deflater.setDictionary(dictionary);
+                }
+                deflater.setInput(block);
+
+                byte[] output = new byte[block.length / 2 + 1024];
+                int length = 0;
+
+                if(last) {
+                    deflater.finish();
+                    while(! deflater.finished()) {
+                        if(length == output.length) {
+                            output = Arrays.copyOf(output, output.length * 2);
+                        }
+                        length += deflater.deflate(output, length, output.length - length);
+                    }
+                } else {
+                    // a sync flush is complete, if the output buffer was not filled
+                    do {
+                        if(length == output.length) {
+                            output = Arrays.copyOf(output, output.length * 2);
+                        }
+                        length += deflater.deflate(output, length, output.length - length, Deflater.SYNC_FLUSH);
+                    } while(length == output.length);
+                }
+
+                return Arrays.copyOf(output, length);
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+}
@@ -16,15 +16,22 @@
 package com.intershop.gradle.cartridge.extension;
 
 import org.apache.commons.lang.WordUtils;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Named;
 import org.gradle.api.NonNullApi;
 import org.gradle.api.Project;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
 
 /**
  * This class provides all information of a package
@@ -40,9 +47,16 @@ public class ComponentPackage implements Named {
     private final Property<String> nameExtensionProperty;
     private final Property<String> osExtensionProperty;
     private final Property<String> releaseDirPathProperty;
+    private final Property<String> matrixNameProperty;
+    private final Property<Boolean> explodedProperty;
 
     private final ConfigurableFileCollection sourcesProperty;
 
+    private final Property<Integer> compressionLevelProperty;
+    private final Property<Boolean> storeOnlyProperty;
+    private final ListProperty<String> storePatternsProperty;
+    private final Property<Long> parallelDeflateThresholdProperty;
+
     @Inject
     ComponentPackage(final Project project, String pkgName) {
         this.pkgName = pkgName;
@@ -52,8 +66,15 @@ public class ComponentPackage implements Named {
         nameExtensionProperty = project.getObjects().property(String.class);
         osExtensionProperty  = project.getObjects().property(String.class);
         releaseDirPathProperty = project.getObjects().property(String.class);
+        matrixNameProperty = project.getObjects().property(String.class);
+        explodedProperty = project.getObjects().property(Boolean.class);
         sourcesProperty = project.files();
 
+        compressionLevelProperty = project.getObjects().property(Integer.class);
+        storeOnlyProperty = project.getObjects().property(Boolean.class);
+        storePatternsProperty = project.getObjects().listProperty(String.class);
+        parallelDeflateThresholdProperty = project.getObjects().property(Long.class);
+
         // set defaults
         baseNameProperty.set(project.getName());
 
@@ -62,6 +83,13 @@ public class ComponentPackage implements Named {
         nameExtensionProperty.set(nameParts[0]);
         osExtensionProperty.set(nameParts.length > 1 ? nameParts[1] : "");
         releaseDirPathProperty.set("");
+        matrixNameProperty.set("");
+        explodedProperty.set(false);
+
+        compressionLevelProperty.set(Deflater.DEFAULT_COMPRESSION);
+        storeOnlyProperty.set(false);
+        storePatternsProperty.set(Collections.emptyList());
+        parallelDeflateThresholdProperty.set(0L);
     }
 
     @Override
@@ -117,6 +145,45 @@ public class ComponentPackage implements Named {
         releaseDirPathProperty.set(name);
     }
 
+    /**
+     * Name of the package matrix of this package. All OS specific
+     * packages of a matrix share the compressed entries of files
+     * with the same content. The name is empty, if the package
+     * is not part of a matrix.
+     *
+     * @return provides the name of the package matrix
+     */
+    public Provider<String> getMatrixNameProvider() {
+        return matrixNameProperty;
+    }
+
+    public String getMatrixName() {
+        return matrixNameProperty.get();
+    }
+
+    public void setMatrixName(String name) {
+        matrixNameProperty.set(name);
+    }
+
+    /**
+     * The package is also mirrored into an exploded directory,
+     * if this is true. The directory contains the same entries
+     * as the archive and is synchronized incrementally.
+     *
+     * @return provides the exploded configuration
+     */
+    public Provider<Boolean> getExplodedProvider() {
+        return explodedProperty;
+    }
+
+    public boolean isExploded() {
+        return explodedProperty.get();
+    }
+
+    public void setExploded(boolean exploded) {
+        explodedProperty.set(exploded);
+    }
+
     public FileCollection getSources() {
         return sourcesProperty;
     }
@@ -129,7 +196,122 @@ public class ComponentPackage implements Named {
         sourcesProperty.from(paths);
     }
 
+    /**
+     * Compression level of the package (0-9),
+     * the default is -1 for the default level of deflate.
+     *
+     * @return provides the compression level
+     */
+    public Provider<Integer> getCompressionLevelProvider() {
+        return compressionLevelProperty;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevelProperty.get();
+    }
+
+    public void setCompressionLevel(int level) {
+        checkCompressionLevel(level);
+        compressionLevelProperty.set(level);
+    }
+
+    public void provideCompressionLevel(Provider<Integer> level) {
+        compressionLevelProperty.set(level);
+    }
+
+    /**
+     * All files of the package are stored without compression,
+     * if this is true.
+     *
+     * @return provides the store only configuration
+     */
+    public Provider<Boolean> getStoreOnlyProvider() {
+        return storeOnlyProperty;
+    }
+
+    public boolean isStoreOnly() {
+        return storeOnlyProperty.get();
+    }
+
+    public void setStoreOnly(boolean storeOnly) {
+        storeOnlyProperty.set(storeOnly);
+    }
+
+    public void provideStoreOnly(Provider<Boolean> storeOnly) {
+        storeOnlyProperty.set(storeOnly);
+    }
+
+    /**
+     * Files matching one of these patterns are stored without
+     * compression, eg. '*.jar', '*.png' or '*.gz'. Patterns without
+     * a slash are matched against the file name, other patterns
+     * against the path in the package.
+     *
+     * @return provides the list of patterns
+     */
+    public Provider<List<String>> getStorePatternsProvider() {
+        return storePatternsProperty;
+    }
+
+    public List<String> getStorePatterns() {
+        return storePatternsProperty.get();
+    }
+
+    public void setStorePatterns(List<String> patterns) {
+        storePatternsProperty.set(patterns);
+    }
+
+    public void provideStorePatterns(Provider<List<String>> patterns) {
+        storePatternsProperty.set(patterns);
+    }
+
+    public void store(String... patterns) {
+        List<String> storePatterns = new ArrayList<>(storePatternsProperty.get());
+        storePatterns.addAll(Arrays.asList(patterns));
+        storePatternsProperty.set(storePatterns);
+    }
+
+    /**
+     * Files with this size in bytes or larger are compressed
+     * block-parallel. The result is a standard deflate entry.
+     * The default is 0, parallel deflate is disabled.
+     *
+     * @return provides the threshold for parallel deflate
+     */
+    public Provider<Long> getParallelDeflateThresholdProvider() {
+        return parallelDeflateThresholdProperty;
+    }
+
+    public long getParallelDeflateThreshold() {
+        return parallelDeflateThresholdProperty.get();
+    }
+
+    public void setParallelDeflateThreshold(long threshold) {
+        checkParallelDeflateThreshold(threshold);
+        parallelDeflateThresholdProperty.set(threshold);
+    }
+
+    public void provideParallelDeflateThreshold(Provider<Long> threshold) {
+        parallelDeflateThresholdProperty.set(threshold);
+    }
+
     public String getTaskName() {
         return "zip".concat(WordUtils.capitalize(pkgName));
     }
+
+    public String getExplodeTaskName() {
+        return "explode".concat(WordUtils.capitalize(pkgName));
+    }
+
+    static void checkCompressionLevel(int level) {
+        if(level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new InvalidUserDataException("The compression level must be between 0 and 9 (or -1 for the default).");
+        }
+    }
+
+    static void checkParallelDeflateThreshold(long threshold) {
+        if(threshold < 0) {
+            throw new InvalidUserDataException("The threshold for parallel deflate must not be negative (0 disables it).");
+        }
+    }
 }
@@ -18,7 +18,10 @@ package com.intershop.gradle.cartridge.extension;
 import groovy.lang.Closure;
 import org.gradle.api.Action;
 import org.gradle.api.Project;
+import org.gradle.api.artifacts.repositories.IvyArtifactRepository;
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RegularFile;
 import org.gradle.api.file.RegularFileProperty;
@@ -26,6 +29,7 @@ import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 
 import javax.inject.Inject;
+import java.io.File;
 
 @SuppressWarnings("ALL")
 public class IntershopExtension {
@@ -38,6 +42,8 @@ public class IntershopExtension {
     public final static String PRODUCT_COPYRIGHT_OWNER = "Intershop Communications";
 
     public final static String MAIN_OUTPUTDIR_NAME = "ish-components";
+    public final static String METRICS_DIR = MAIN_OUTPUTDIR_NAME + "/metrics";
+    public final static String METRICS_REPORT = MAIN_OUTPUTDIR_NAME + "/metrics.json";
 
     public final static String STATICFILES = "staticfiles";
     public final static String CARTRIDGE   = "cartridge";
@@ -45,9 +51,20 @@ public class IntershopExtension {
 
     public final static String DEPLOYGRADLE = "deployment/deploy.gradle";
 
+    public final static String VALIDATION_REPORT = "reports/ish-components/validation.json";
+    public final static String VALIDATION_AGGREGATE_REPORT = "reports/ish-components/validation-all.json";
+
+    public final static String PACKAGINGCACHE_DIR = "caches/ish-components/entries";
+    public final static long PACKAGINGCACHE_MAXSIZE = 1024L * 1024L * 1024L;
+    public final static String SHARED_ENTRIES_DIR = MAIN_OUTPUTDIR_NAME + "/shared-entries";
+    public final static String EXPLODED_DIR = MAIN_OUTPUTDIR_NAME + "/exploded";
+
     public final static String DEFAULT_IVYPUBLICATION = "ivyIntershop";
     public final static String DEFAULT_MAVENPUBLICATION = "mvnIntershop";
 
+    public final static String PUBLICATIONS_DIR = "publications";
+    public final static String PUBLICATION_CHECKSUMS = "checksums.json";
+
     private final Project project;
 
     private final Property<String> ivyPublicationNameProperty;
@@ -60,6 +77,20 @@ public class IntershopExtension {
     private final ConfigurableFileCollection staticLibsProperty;
     private final PackageContainer packageContainer;
 
+    private final Property<Boolean> parallelPackagingProperty;
+    private final Property<Integer> maxParallelPackagesProperty;
+    private final Property<Boolean> incrementalPackagingProperty;
+
+    private final Property<Boolean> packagingCacheProperty;
+    private final DirectoryProperty packagingCacheDirProperty;
+    private final Property<Long> packagingCacheMaxSizeProperty;
+
+    private final Property<Boolean> reproducibleArchivesProperty;
+    private final Property<Boolean> explodedHardLinksProperty;
+
+    private final Property<Boolean> skipUnchangedArtifactsProperty;
+    private final Property<String> ivyArtifactPatternProperty;
+
     @Inject
     public IntershopExtension(final Project project) {
         this.project = project;
@@ -74,6 +105,21 @@ public class IntershopExtension {
         staticLibsProperty = project.files();
 
         packageContainer = project.getObjects().newInstance(PackageContainer.class, project);
+
+        parallelPackagingProperty = project.getObjects().property(Boolean.class);
+        maxParallelPackagesProperty = project.getObjects().property(Integer.class);
+        incrementalPackagingProperty = project.getObjects().property(Boolean.class);
+
+        packagingCacheProperty = project.getObjects().property(Boolean.class);
+        packagingCacheDirProperty = project.getLayout().directoryProperty();
+        packagingCacheMaxSizeProperty = project.getObjects().property(Long.class);
+
+        reproducibleArchivesProperty = project.getObjects().property(Boolean.class);
+        explodedHardLinksProperty = project.getObjects().property(Boolean.class);
+
+        skipUnchangedArtifactsProperty = project.getObjects().property(Boolean.class);
+        ivyArtifactPatternProperty = project.getObjects().property(String.class);
+
         // set defaults
         ivyPublicationNameProperty.set(DEFAULT_IVYPUBLICATION);
         mavenPublicationNameProperty.set(DEFAULT_MAVENPUBLICATION);
@@ -87,6 +133,20 @@ public class IntershopExtension {
 
         deploymentFileProperty.set(project.getLayout().getProjectDirectory().file(DEPLOYGRADLE));
         staticLibsProperty.from(project.fileTree(project.getLayout().getProjectDirectory().dir(String.join("/", STATICFILES, CARTRIDGE, STATICLIBS)), files -> files.include("*.jar")));
+
+        parallelPackagingProperty.set(false);
+        maxParallelPackagesProperty.set(Runtime.getRuntime().availableProcessors());
+        incrementalPackagingProperty.set(false);
+
+        packagingCacheProperty.set(false);
+        packagingCacheDirProperty.set(new File(project.getGradle().getGradleUserHomeDir(), PACKAGINGCACHE_DIR));
+        packagingCacheMaxSizeProperty.set(PACKAGINGCACHE_MAXSIZE);
+
+        reproducibleArchivesProperty.set(false);
+        explodedHardLinksProperty.set(false);
+
+        skipUnchangedArtifactsProperty.set(false);
+        ivyArtifactPatternProperty.set(IvyArtifactRepository.GRADLE_ARTIFACT_PATTERN);
     }
 
     // ivy publication name
@@ -175,6 +235,197 @@ public class IntershopExtension {
         staticLibsProperty.from(staticLibs);
     }
 
+    /**
+     * All packages of a project are created in parallel
+     * with the Gradle worker API, if this is true.
+     *
+     * @return provides the parallel packaging configuration
+     */
+    public Provider<Boolean> getParallelPackagingProvider() {
+        return parallelPackagingProperty;
+    }
+
+    public boolean isParallelPackaging() {
+        return parallelPackagingProperty.get();
+    }
+
+    public void setParallelPackaging(boolean parallelPackaging) {
+        parallelPackagingProperty.set(parallelPackaging);
+    }
+
+    /**
+     * Maximum number of packages of a project, that
+     * are created at the same time in parallel packaging.
+     *
+     * @return provides the maximum number of parallel packages
+     */
+    public Provider<Integer> getMaxParallelPackagesProvider() {
+        return maxParallelPackagesProperty;
+    }
+
+    public int getMaxParallelPackages() {
+        return maxParallelPackagesProperty.get();
+    }
+
+    public void setMaxParallelPackages(int maxParallelPackages) {
+        maxParallelPackagesProperty.set(maxParallelPackages);
+    }
+
+    /**
+     * Existing packages are updated with changed files
+     * only, if this is true. Unchanged entries are copied
+     * without a new compression.
+     *
+     * @return provides the incremental packaging configuration
+     */
+    public Provider<Boolean> getIncrementalPackagingProvider() {
+        return incrementalPackagingProperty;
+    }
+
+    public boolean isIncrementalPackaging() {
+        return incrementalPackagingProperty.get();
+    }
+
+    public void setIncrementalPackaging(boolean incrementalPackaging) {
+        incrementalPackagingProperty.set(incrementalPackaging);
+    }
+
+    /**
+     * Compressed entries of all packages are stored in a
+     * content addressed cache and reused by other packages,
+     * projects and builds, if this is true.
+     *
+     * @return provides the packaging cache configuration
+     */
+    public Provider<Boolean> getPackagingCacheProvider() {
+        return packagingCacheProperty;
+    }
+
+    public boolean isPackagingCache() {
+        return packagingCacheProperty.get();
+    }
+
+    public void setPackagingCache(boolean packagingCache) {
+        packagingCacheProperty.set(packagingCache);
+    }
+
+    /**
+     * This attribute defines the directory of the packaging cache.
+     * The default is a directory in the Gradle user home, so that
+     * the cache is shared by all builds.
+     *
+     * @return provides the directory of the packaging cache
+     */
+    public Provider<Directory> getPackagingCacheDirProvider() {
+        return packagingCacheDirProperty;
+    }
+
+    public File getPackagingCacheDir() {
+        return packagingCacheDirProperty.get().getAsFile();
+    }
+
+    public void setPackagingCacheDir(File packagingCacheDir) {
+        packagingCacheDirProperty.set(packagingCacheDir);
+    }
+
+    /**
+     * This attribute defines the maximum size of the packaging
+     * cache in bytes. Least recently used entries are removed,
+     * if the cache is larger.
+     *
+     * @return provides the maximum size of the packaging cache
+     */
+    public Provider<Long> getPackagingCacheMaxSizeProvider() {
+        return packagingCacheMaxSizeProperty;
+    }
+
+    public long getPackagingCacheMaxSize() {
+        return packagingCacheMaxSizeProperty.get();
+    }
+
+    public void setPackagingCacheMaxSize(long packagingCacheMaxSize) {
+        packagingCacheMaxSizeProperty.set(packagingCacheMaxSize);
+    }
+
+    /**
+     * All packages are created byte-for-byte reproducible, if
+     * this is true. Entries are sorted by the path and all entries
+     * get the same fixed timestamp, so that identical sources
+     * create identical archives on all build agents.
+     *
+     * @return provides the reproducible archives configuration
+     */
+    public Provider<Boolean> getReproducibleArchivesProvider() {
+        return reproducibleArchivesProperty;
+    }
+
+    public boolean isReproducibleArchives() {
+        return reproducibleArchivesProperty.get();
+    }
+
+    public void setReproducibleArchives(boolean reproducibleArchives) {
+        reproducibleArchivesProperty.set(reproducibleArchives);
+    }
+
+    /**
+     * Files of exploded packages are hard linked to the
+     * sources, if this is true. Otherwise changed files
+     * are copied into the exploded directory. A linked
+     * file is the source file, changes in the exploded
+     * directory change the sources.
+     *
+     * @return provides the hard links configuration
+     */
+    public Provider<Boolean> getExplodedHardLinksProvider() {
+        return explodedHardLinksProperty;
+    }
+
+    public boolean isExplodedHardLinks() {
+        return explodedHardLinksProperty.get();
+    }
+
+    public void setExplodedHardLinks(boolean explodedHardLinks) {
+        explodedHardLinksProperty.set(explodedHardLinks);
+    }
+
+    /**
+     * Artifacts of the Intershop publications are not published
+     * again, if the target repository contains the artifact with the
+     * same checksum. Descriptors are always published.
+     *
+     * @return provides the configuration for unchanged artifacts
+     */
+    public Provider<Boolean> getSkipUnchangedArtifactsProvider() {
+        return skipUnchangedArtifactsProperty;
+    }
+
+    public boolean isSkipUnchangedArtifacts() {
+        return skipUnchangedArtifactsProperty.get();
+    }
+
+    public void setSkipUnchangedArtifacts(boolean skipUnchangedArtifacts) {
+        skipUnchangedArtifactsProperty.set(skipUnchangedArtifacts);
+    }
+
+    /**
+     * Artifact pattern of the Ivy repositories. It is used to find
+     * the checksums of published artifacts, if unchanged artifacts
+     * are skipped. The default is the pattern of the Gradle layout.
+     *
+     * @return provides the artifact pattern
+     */
+    public Provider<String> getIvyArtifactPatternProvider() {
+        return ivyArtifactPatternProperty;
+    }
+
+    public String getIvyArtifactPattern() {
+        return ivyArtifactPatternProperty.get();
+    }
+
+    public void setIvyArtifactPattern(String ivyArtifactPattern) {
+        ivyArtifactPatternProperty.set(ivyArtifactPattern);
+    }
+
     public PackageContainer getPackages() {
         return packageContainer;
     }
@@ -22,9 +22,18 @@ import org.gradle.api.NamedDomainObjectSet;
 import org.gradle.api.Project;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.util.GUtil;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.Deflater;
 
 /**
  * Package Container
@@ -48,10 +57,98 @@ public class PackageContainer {
     private final Project project;
     private final NamedDomainObjectContainer<ComponentPackage> packageContainer;
 
+    private final Property<Integer> compressionLevelProperty;
+    private final Property<Boolean> storeOnlyProperty;
+    private final ListProperty<String> storePatternsProperty;
+    private final Property<Long> parallelDeflateThresholdProperty;
+
     @Inject
     public PackageContainer(final Project project) {
         this.project = project;
         packageContainer = project.container(ComponentPackage.class, new ComponentPackageFactory(project));
+
+        compressionLevelProperty = project.getObjects().property(Integer.class);
+        storeOnlyProperty = project.getObjects().property(Boolean.class);
+        storePatternsProperty = project.getObjects().listProperty(String.class);
+        parallelDeflateThresholdProperty = project.getObjects().property(Long.class);
+
+        compressionLevelProperty.set(Deflater.DEFAULT_COMPRESSION);
+        storeOnlyProperty.set(false);
+        storePatternsProperty.set(Collections.emptyList());
+        parallelDeflateThresholdProperty.set(0L);
+
+        // compression settings of the container are the defaults of all packages
+        packageContainer.all(pkg -> {
+            pkg.provideCompressionLevel(compressionLevelProperty);
+            pkg.provideStoreOnly(storeOnlyProperty);
+            pkg.provideStorePatterns(storePatternsProperty);
+            pkg.provideParallelDeflateThreshold(parallelDeflateThresholdProperty);
+        });
+    }
+
+    /**
+     * Default compression level of all packages (0-9),
+     * the default is -1 for the default level of deflate.
+     *
+     * @return the default compression level
+     */
+    public int getCompressionLevel() {
+        return compressionLevelProperty.get();
+    }
+
+    public void setCompressionLevel(int level) {
+        ComponentPackage.checkCompressionLevel(level);
+        compressionLevelProperty.set(level);
+    }
+
+    /**
+     * All files of all packages are stored without compression,
+     * if this is true.
+     *
+     * @return the default store only configuration
+     */
+    public boolean isStoreOnly() {
+        return storeOnlyProperty.get();
+    }
+
+    public void setStoreOnly(boolean storeOnly) {
+        storeOnlyProperty.set(storeOnly);
+    }
+
+    /**
+     * Files matching one of these patterns are stored without
+     * compression in all packages, eg. '*.jar'.
+     *
+     * @return the default list of patterns
+     */
+    public List<String> getStorePatterns() {
+        return storePatternsProperty.get();
+    }
+
+    public void setStorePatterns(List<String> patterns) {
+        storePatternsProperty.set(patterns);
+    }
+
+    public void store(String... patterns) {
+        List<String> storePatterns = new ArrayList<>(storePatternsProperty.get());
+        storePatterns.addAll(Arrays.asList(patterns));
+        storePatternsProperty.set(storePatterns);
+    }
+
+    /**
+     * Default size in bytes for all packages, from which files are
+     * compressed block-parallel. The default is 0, parallel
+     * deflate is disabled.
+     *
+     * @return the default threshold for parallel deflate
+     */
+    public long getParallelDeflateThreshold() {
+        return parallelDeflateThresholdProperty.get();
+    }
+
+    public void setParallelDeflateThreshold(long threshold) {
+        ComponentPackage.checkParallelDeflateThreshold(threshold);
+        parallelDeflateThresholdProperty.set(threshold);
     }
 
     /**
@@ -105,6 +202,30 @@ public class PackageContainer {
         return pkg;
     }
 
+    /**
+     * Adds OS specific local packages of a package matrix for Groovy.
+     * The closure configures all packages of the matrix.
+     *
+     * @param osclassifiers Short names of the OS classifiers (win, linux, darwin)
+     * @param c Closure to configure each local package from type ComponentPackage
+     * @return the configured local component packages
+     */
+    public List<ComponentPackage> createLocalMatrix(List<String> osclassifiers, Closure c) {
+        return createMatrix(LOCAL_NAME, osclassifiers, this::getLocalOSContainer, pkg -> project.configure(pkg, c));
+    }
+
+    /**
+     * Adds OS specific local packages of a package matrix for Java/Kotlin.
+     * The action configures all packages of the matrix.
+     *
+     * @param osclassifiers Short names of the OS classifiers (win, linux, darwin)
+     * @param configure     Action to configure each local package
+     * @return the configured local component packages
+     */
+    public List<ComponentPackage> createLocalMatrix(List<String> osclassifiers, Action<? super ComponentPackage> configure) {
+        return createMatrix(LOCAL_NAME, osclassifiers, this::getLocalOSContainer, configure);
+    }
+
     /**
      * Adds default share package
      *
@@ -156,6 +277,30 @@ public class PackageContainer {
         return pkg;
     }
 
+    /**
+     * Adds OS specific share packages of a package matrix for Groovy.
+     * The closure configures all packages of the matrix.
+     *
+     * @param osclassifiers Short names of the OS classifiers (win, linux, darwin)
+     * @param c Closure to configure each share package from type ComponentPackage
+     * @return the configured share component packages
+     */
+    public List<ComponentPackage> createShareMatrix(List<String> osclassifiers, Closure c) {
+        return createMatrix(SHARE_NAME, osclassifiers, this::getShareOSContainer, pkg -> project.configure(pkg, c));
+    }
+
+    /**
+     * Adds OS specific share packages of a package matrix for Java/Kotlin.
+     * The action configures all packages of the matrix.
+     *
+     * @param osclassifiers Short names of the OS classifiers (win, linux, darwin)
+     * @param configure     Action to configure each share package
+     * @return the configured share component packages
+     */
+    public List<ComponentPackage> createShareMatrix(List<String> osclassifiers, Action<? super ComponentPackage> configure) {
+        return createMatrix(SHARE_NAME, osclassifiers, this::getShareOSContainer, configure);
+    }
+
     /**
      * Adds default cartridge package
      *
@@ -207,6 +352,30 @@ public class PackageContainer {
         return pkg;
     }
 
+    /**
+     * Adds OS specific cartridge packages of a package matrix for Groovy.
+     * The closure configures all packages of the matrix.
+     *
+     * @param osclassifiers Short names of the OS classifiers (win, linux, darwin)
+     * @param c Closure to configure each cartridge package from type ComponentPackage
+     * @return the configured cartridge component packages
+     */
+    public List<ComponentPackage> createCartridgeMatrix(List<String> osclassifiers, Closure c) {
+        return createMatrix(CARTRIDGE_NAME, osclassifiers, this::getCartridgeOSContainer, pkg -> project.configure(pkg, c));
+    }
+
+    /**
+     * Adds OS specific cartridge packages of a package matrix for Java/Kotlin.
+     * The action configures all packages of the matrix.
+     *
+     * @param osclassifiers Short names of the OS classifiers (win, linux, darwin)
+     * @param configure     Action to configure each cartridge package
+     * @return the configured cartridge component packages
+     */
+    public List<ComponentPackage> createCartridgeMatrix(List<String> osclassifiers, Action<? super ComponentPackage> configure) {
+        return createMatrix(CARTRIDGE_NAME, osclassifiers, this::getCartridgeOSContainer, configure);
+    }
+
     /**
      * This is a collection of all files in the local folder of a cartridge.
      * The collection is also used for the creation of the local package.
@@ -249,7 +418,37 @@ public class PackageContainer {
         return packageContainer;
     }
 
+    /**
+     * All packages of a package matrix.
+     *
+     * @param matrixName    name of the package matrix
+     * @return list of the component packages of the matrix
+     */
+    public List<ComponentPackage> getMatrixPackages(String matrixName) {
+        List<ComponentPackage> packages = new ArrayList<>();
+        for(ComponentPackage pkg : packageContainer) {
+            if(pkg.getMatrixName().equals(matrixName)) {
+                packages.add(pkg);
+            }
+        }
+        return packages;
+    }
+
     // --- private methods
+    // OS specific packages of a package matrix
+    private List<ComponentPackage> createMatrix(String matrixName, List<String> osclassifiers,
+                                                Function<String, ComponentPackage> osContainer,
+                                                Action<? super ComponentPackage> configure) {
+        List<ComponentPackage> packages = new ArrayList<>();
+        for(String osclassifier : new LinkedHashSet<>(osclassifiers)) {
+            ComponentPackage pkg = osContainer.apply(osclassifier);
+            pkg.setMatrixName(matrixName);
+            configure.execute(pkg);
+            packages.add(pkg);
+        }
+        return packages;
+    }
+
     // local package with OS extension
     private ComponentPackage getLocalOSContainer(String osclassifier) {
         String pkgName = LOCAL_NAME.concat("_").concat(osclassifier);
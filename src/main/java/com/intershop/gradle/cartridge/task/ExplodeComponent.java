@@ -0,0 +1,350 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.task;
+
+import com.intershop.gradle.cartridge.archive.ComponentArchiveSpec;
+import com.intershop.gradle.cartridge.util.PackagingMetrics;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Mirrors the entries of a component package into a directory,
+ * eg. for a local development server. The directory contains the
+ * same entries as the archive, including the release directory.
+ *
+ * The directory is synchronized incrementally. Files are hard linked
+ * or copied, if they are changed. Files and directories, that are not
+ * part of the package, are removed from the directory.
+ */
+public class ExplodeComponent extends DefaultTask {
+
+    public ExplodeComponent() {
+        releaseDirNameProperty.set("");
+        hardLinksProperty.set(false);
+    }
+
+    private final ConfigurableFileCollection inputFilesProperty = getProject().files();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getInputFiles() {
+        return inputFilesProperty;
+    }
+
+    public void setInputFiles(FileCollection files) {
+        inputFilesProperty.setFrom(files);
+    }
+
+    private final ConfigurableFileCollection staticLibsProperty = getProject().files();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getStaticLibs() {
+        return staticLibsProperty;
+    }
+
+    public void setStaticLibs(FileCollection files) {
+        staticLibsProperty.setFrom(files);
+    }
+
+    private final Property<String> releaseDirNameProperty = getProject().getObjects().property(String.class);
+
+    @Input
+    public String getReleaseDirName() {
+        return releaseDirNameProperty.get();
+    }
+
+    public void setReleaseDirName(String name) {
+        releaseDirNameProperty.set(name);
+    }
+
+    public void provideReleaseDirName(Provider<String> releaseDirName) {
+        releaseDirNameProperty.set(releaseDirName);
+    }
+
+    private final Property<Boolean> hardLinksProperty = getProject().getObjects().property(Boolean.class);
+
+    /**
+     * Files are hard linked to the sources, if this is true.
+     * The files are copied, if the file system does not support
+     * hard links between the sources and the directory. Linked
+     * files are not read-only, the permissions of a link are
+     * the permissions of the source file.
+     *
+     * @return true if hard links are used
+     */
+    @Input
+    public boolean isHardLinks() {
+        return hardLinksProperty.get();
+    }
+
+    public void setHardLinks(boolean hardLinks) {
+        hardLinksProperty.set(hardLinks);
+    }
+
+    public void provideHardLinks(Provider<Boolean> hardLinks) {
+        hardLinksProperty.set(hardLinks);
+    }
+
+    private final DirectoryProperty destinationDirProperty = getProject().getLayout().directoryProperty();
+
+    /**
+     * Directory of the exploded package. The directory is
+     * owned by this task, other files are removed.
+     *
+     * @return provides the destination directory
+     */
+    @OutputDirectory
+    public DirectoryProperty getDestinationDir() {
+        return destinationDirProperty;
+    }
+
+    public void setDestinationDir(File destinationDir) {
+        destinationDirProperty.set(destinationDir);
+    }
+
+    public void provideDestinationDir(Provider<Directory> destinationDir) {
+        destinationDirProperty.set(destinationDir);
+    }
+
+    @TaskAction
+    public void explode() {
+        sync(createSpec(), getDestinationDir().get().getAsFile().toPath(), isHardLinks(), getLogger());
+    }
+
+    /**
+     * Resolves the entries of the package in the same way as the
+     * zip task. The specification is only used for the entries.
+     *
+     * @return the specification with all entries of the package
+     */
+    ComponentArchiveSpec createSpec() {
+        ComponentArchiveSpec spec = createSettings();
+        int excludedStaticLibs = ZipComponent.addEntries(spec, getInputFiles(), getStaticLibs(), getReleaseDirName(),
+                new PackagingMetrics(getName()));
+        getLogger().info("{} static lib(s) excluded from exploded package {}", excludedStaticLibs, spec.getArchiveFile());
+        return spec;
+    }
+
+    /**
+     * Creates the specification of the exploded directory
+     * without entries. It is also used by the watch mode.
+     *
+     * @return the specification without entries
+     */
+    ComponentArchiveSpec createSettings() {
+        return new ComponentArchiveSpec(getDestinationDir().get().getAsFile(), ZipComponent.FILE_MODE, ZipComponent.DIR_MODE);
+    }
+
+    /**
+     * Synchronizes the destination directory with the entries.
+     *
+     * @param spec      specification with all entries of the package
+     * @param targetDir the exploded directory
+     * @param hardLinks files are hard linked, if this is true
+     * @param logger    logger for the result
+     */
+    static void sync(ComponentArchiveSpec spec, Path targetDir, boolean hardLinks, Logger logger) {
+        Map<String, File> files = new HashMap<>();
+        TreeSet<String> dirs = new TreeSet<>();
+        for(ComponentArchiveSpec.Entry entry : spec.getEntries()) {
+            if(entry.isDirectory()) {
+                dirs.add(entry.getPath());
+            } else {
+                files.put(entry.getPath(), entry.getFile());
+            }
+            // the release directory is not an entry of the package
+            for(int index = entry.getPath().lastIndexOf('/'); index > 0; index = entry.getPath().lastIndexOf('/', index - 1)) {
+                dirs.add(entry.getPath().substring(0, index));
+            }
+        }
+
+        SyncResult result = new SyncResult();
+        try {
+            Files.createDirectories(targetDir);
+            removeObsolete(targetDir, files, dirs, result);
+            for(String dir : dirs) {
+                Files.createDirectories(targetDir.resolve(dir));
+            }
+            boolean linkFiles = hardLinks;
+            for(Map.Entry<String, File> file : files.entrySet()) {
+                linkFiles = syncFile(file.getValue().toPath(), targetDir.resolve(file.getKey()), linkFiles, result, logger);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Exploded package " + targetDir + " was not synchronized.", ex);
+        }
+
+        logger.info("Exploded package {} synchronized: {} file(s) copied, {} linked, {} unchanged, {} removed.",
+                targetDir, result.copied, result.linked, result.unchanged, result.removed);
+    }
+
+    /**
+     * Updates only the changed entries of the destination directory.
+     * The directory is not compared with the other entries, it is
+     * used by the watch mode after a synchronization.
+     *
+     * @param targetDir         the exploded directory
+     * @param changedEntries    new or changed entries
+     * @param removedPaths      paths of entries, that are not part of the package anymore
+     * @param hardLinks         files are hard linked, if this is true
+     * @param logger            logger for the result
+     */
+    static void update(Path targetDir, Collection<ComponentArchiveSpec.Entry> changedEntries, Collection<String> removedPaths,
+                       boolean hardLinks, Logger logger) {
+        SyncResult result = new SyncResult();
+        try {
+            // the content of a directory is removed before the directory
+            List<String> paths = new ArrayList<>(removedPaths);
+            paths.sort(Collections.reverseOrder());
+            for(String path : paths) {
+                Path target = targetDir.resolve(path);
+                if(Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)) {
+                    deleteDir(target);
+                } else if(Files.deleteIfExists(target)) {
+                    result.removed++;
+                }
+            }
+
+            boolean linkFiles = hardLinks;
+            for(ComponentArchiveSpec.Entry entry : changedEntries) {
+                Path target = targetDir.resolve(entry.getPath());
+                if(entry.isDirectory()) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    linkFiles = syncFile(entry.getFile().toPath(), target, linkFiles, result, logger);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Exploded package " + targetDir + " was not updated.", ex);
+        }
+
+        logger.info("Exploded package {} updated: {} file(s) copied, {} linked, {} unchanged, {} removed.",
+                targetDir, result.copied, result.linked, result.unchanged, result.removed);
+    }
+
+    /**
+     * Removes all files and directories, that are not part of the package.
+     * The content of a directory is removed before the directory.
+     */
+    private static void removeObsolete(Path targetDir, Map<String, File> files, TreeSet<String> dirs, SyncResult result) throws IOException {
+        List<Path> existing;
+        try (Stream<Path> paths = Files.walk(targetDir)) {
+            existing = paths.filter(path -> ! path.equals(targetDir)).collect(Collectors.toCollection(ArrayList::new));
+        }
+        Collections.reverse(existing);
+
+        for(Path path : existing) {
+            String relativePath = targetDir.relativize(path).toString().replace(File.separatorChar, '/');
+            if(Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                if(! dirs.contains(relativePath)) {
+                    Files.delete(path);
+                }
+            } else if(! files.containsKey(relativePath)) {
+                Files.delete(path);
+                result.removed++;
+            }
+        }
+    }
+
+    private static void deleteDir(Path dir) throws IOException {
+        List<Path> existing;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            existing = paths.collect(Collectors.toCollection(ArrayList::new));
+        }
+        Collections.reverse(existing);
+        for(Path path : existing) {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Links or copies a changed file.
+     *
+     * @return false, if hard links are not supported
+     */
+    private static boolean syncFile(Path source, Path target, boolean hardLinks, SyncResult result, Logger logger) throws IOException {
+        boolean exists = Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS);
+
+        if(hardLinks) {
+            if(exists && Files.isSameFile(source, target)) {
+                result.unchanged++;
+                return true;
+            }
+            Files.deleteIfExists(target);
+            try {
+                Files.createLink(target, source);
+                result.linked++;
+                return true;
+            } catch (IOException | UnsupportedOperationException ex) {
+                logger.info("Hard links are not supported for {}, the files are copied: {}", target, ex.getMessage());
+            }
+            exists = false;
+        }
+
+        // a hard link of a previous synchronization is replaced by a copy,
+        // otherwise a change of the exploded file changes the source
+        if(exists && Files.isSameFile(source, target)) {
+            Files.delete(target);
+            exists = false;
+        }
+
+        if(exists && Files.size(source) == Files.size(target)
+                && Files.getLastModifiedTime(source).equals(Files.getLastModifiedTime(target))) {
+            result.unchanged++;
+        } else {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            result.copied++;
+        }
+        return false;
+    }
+
+    private static class SyncResult {
+        private int copied = 0;
+        private int linked = 0;
+        private int unchanged = 0;
+        private int removed = 0;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.task;
+
+import com.intershop.gradle.cartridge.extension.IntershopExtension;
+import com.intershop.gradle.cartridge.util.JsonReport;
+import groovy.json.JsonSlurper;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates the metrics reports of the packaging and validation
+ * tasks of all cartridges in one report of the root project.
+ * Tasks are sorted by the wall time, so that the most expensive
+ * packages are on top.
+ */
+public class PackagingMetricsReport extends DefaultTask {
+
+    public PackagingMetricsReport() {
+        reportFileProperty.set(getProject().getLayout().getBuildDirectory().file(
+                IntershopExtension.METRICS_REPORT));
+    }
+
+    private final ConfigurableFileCollection metricsFilesProperty = getProject().files();
+
+    /**
+     * Metrics reports of all configured tasks. A report
+     * does not exist, if the task was never executed.
+     *
+     * @return JSON files of all measured tasks
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getMetricsFiles() {
+        return metricsFilesProperty;
+    }
+
+    /**
+     * Adds the metrics report of a task. Only the reports
+     * of configured tasks are aggregated, reports of removed
+     * tasks or packages are ignored.
+     *
+     * @param metricsFile   provides the metrics report of a task
+     */
+    public void addMetricsFile(Provider<File> metricsFile) {
+        metricsFilesProperty.from(metricsFile);
+    }
+
+    private final RegularFileProperty reportFileProperty = getProject().getLayout().fileProperty();
+
+    /**
+     * Aggregated JSON report.
+     *
+     * @return provides the report file
+     */
+    @OutputFile
+    public RegularFileProperty getReportFile() {
+        return reportFileProperty;
+    }
+
+    public void setReportFile(File reportFile) {
+        reportFileProperty.set(reportFile);
+    }
+
+    public void provideReportFile(Provider<RegularFile> reportFile) {
+        reportFileProperty.set(reportFile);
+    }
+
+    @TaskAction
+    @SuppressWarnings("unchecked")
+    public void aggregate() {
+        JsonSlurper slurper = new JsonSlurper();
+        List<Map<String, Object>> tasks = new ArrayList<>();
+        for(File metricsFile : getMetricsFiles().getFiles()) {
+            if(metricsFile.isFile()) {
+                tasks.add((Map<String, Object>) slurper.parse(metricsFile));
+            }
+        }
+        tasks.sort(Comparator.comparingLong((Map<String, Object> task) -> getLong(task, "wallTime")).reversed());
+
+        long wallTime = 0;
+        long cpuTime = 0;
+        long fileCount = 0;
+        long bytesRead = 0;
+        long bytesWritten = 0;
+        long staticLibExclusionTime = 0;
+
+        for(Map<String, Object> task : tasks) {
+            wallTime += getLong(task, "wallTime");
+            cpuTime += getLong(task, "cpuTime");
+            for(Map<String, Object> pkg : (List<Map<String, Object>>) task.get("packages")) {
+                staticLibExclusionTime += getLong(pkg, "staticLibExclusionTime");
+                // only created packages are counted, validated files are part of them
+                if(pkg.containsKey("bytesWritten")) {
+                    fileCount += getLong(pkg, "fileCount");
+                    bytesRead += getLong(pkg, "bytesRead");
+                    bytesWritten += getLong(pkg, "bytesWritten");
+                }
+            }
+        }
+
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("tasks", tasks.size());
+        totals.put("wallTime", wallTime);
+        totals.put("cpuTime", cpuTime);
+        totals.put("fileCount", fileCount);
+        totals.put("bytesRead", bytesRead);
+        totals.put("bytesWritten", bytesWritten);
+        totals.put("compressionRatio", bytesRead > 0 ? (double) bytesWritten / bytesRead : 1.0);
+        totals.put("staticLibExclusionTime", staticLibExclusionTime);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("totals", totals);
+        report.put("tasks", tasks);
+
+        File reportFile = getReportFile().get().getAsFile();
+        JsonReport.write(reportFile, report);
+        getLogger().info("Metrics of {} task(s) aggregated in {}", tasks.size(), reportFile);
+    }
+
+    private static long getLong(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
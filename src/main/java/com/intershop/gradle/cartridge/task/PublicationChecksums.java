@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.task;
+
+import com.intershop.gradle.cartridge.util.ArtifactChecksums;
+import com.intershop.gradle.cartridge.util.JsonReport;
+import groovy.json.JsonSlurper;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates a manifest with the SHA-1 checksums and sizes of
+ * all artifacts of a publication. The manifest is used to skip
+ * artifacts, that are available with the same checksum in the
+ * target repository.
+ */
+public class PublicationChecksums extends DefaultTask {
+
+    private final Property<String> publicationNameProperty = getProject().getObjects().property(String.class);
+
+    /**
+     * Name of the publication.
+     *
+     * @return the publication name
+     */
+    @Input
+    public String getPublicationName() {
+        return publicationNameProperty.get();
+    }
+
+    public void setPublicationName(String publicationName) {
+        publicationNameProperty.set(publicationName);
+    }
+
+    private final List<ArtifactFile> artifacts = new ArrayList<>();
+
+    /**
+     * All artifacts of the publication.
+     *
+     * @return list of artifacts with key and file
+     */
+    @Nested
+    public List<ArtifactFile> getArtifacts() {
+        return Collections.unmodifiableList(artifacts);
+    }
+
+    /**
+     * Adds an artifact to the manifest.
+     *
+     * @param key   identifies the artifact in the publication
+     * @param file  file of the artifact
+     */
+    public void addArtifact(String key, File file) {
+        artifacts.add(new ArtifactFile(key, file));
+    }
+
+    private final RegularFileProperty manifestFileProperty = getProject().getLayout().fileProperty();
+
+    /**
+     * JSON manifest with the checksums.
+     *
+     * @return provides the manifest file
+     */
+    @OutputFile
+    public RegularFileProperty getManifestFile() {
+        return manifestFileProperty;
+    }
+
+    public void setManifestFile(File manifestFile) {
+        manifestFileProperty.set(manifestFile);
+    }
+
+    public void provideManifestFile(Provider<RegularFile> manifestFile) {
+        manifestFileProperty.set(manifestFile);
+    }
+
+    @TaskAction
+    public void writeManifest() {
+        List<Map<String, Object>> artifactReports = new ArrayList<>();
+        for(ArtifactFile artifact : artifacts) {
+            Map<String, Object> artifactReport = new LinkedHashMap<>();
+            artifactReport.put("key", artifact.getKey());
+            artifactReport.put("file", artifact.getFile().getName());
+            artifactReport.put("size", artifact.getFile().length());
+            artifactReport.put("sha1", ArtifactChecksums.sha1(artifact.getFile()));
+            artifactReports.add(artifactReport);
+        }
+
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("publication", getPublicationName());
+        manifest.put("artifacts", artifactReports);
+
+        JsonReport.write(getManifestFile().get().getAsFile(), manifest);
+    }
+
+    /**
+     * Reads the checksums of a manifest.
+     *
+     * @param manifestFile  manifest created by this task
+     * @return map of artifact keys to SHA-1 checksums
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, String> readChecksums(File manifestFile) {
+        Map<String, String> checksums = new HashMap<>();
+        if(manifestFile.isFile()) {
+            Map<String, Object> manifest = (Map<String, Object>) new JsonSlurper().parse(manifestFile);
+            for(Map<String, Object> artifact : (List<Map<String, Object>>) manifest.get("artifacts")) {
+                checksums.put(artifact.get("key").toString(), artifact.get("sha1").toString());
+            }
+        }
+        return checksums;
+    }
+
+    /**
+     * A single artifact of the publication.
+     */
+    public static class ArtifactFile {
+
+        private final String key;
+        private final File file;
+
+        ArtifactFile(String key, File file) {
+            this.key = key;
+            this.file = file;
+        }
+
+        @Input
+        public String getKey() {
+            return key;
+        }
+
+        @InputFile
+        @PathSensitive(PathSensitivity.NONE)
+        public File getFile() {
+            return file;
+        }
+    }
+}
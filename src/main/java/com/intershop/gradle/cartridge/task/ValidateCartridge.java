@@ -16,103 +16,236 @@
 package com.intershop.gradle.cartridge.task;
 
 import com.intershop.gradle.cartridge.extension.IntershopExtension;
-import com.intershop.gradle.cartridge.extension.PackageContainer;
+import com.intershop.gradle.cartridge.util.CartridgeValidator;
+import com.intershop.gradle.cartridge.util.JsonReport;
+import com.intershop.gradle.cartridge.util.PackagingMetrics;
+import com.intershop.gradle.cartridge.util.SourceFileIndex;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.LocalState;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * Validates the package configuration of a cartridge.
+ * All data is configured by the plugin, the project is
+ * not used during the execution of this task.
+ *
+ * The result is written to a JSON report, so that the
+ * task is up-to-date or taken from the build cache, if
+ * the sources and the packages are not changed.
+ */
+@CacheableTask
 public class ValidateCartridge extends DefaultTask {
 
+    public ValidateCartridge() {
+        reportFileProperty.set(getProject().getLayout().getBuildDirectory().file(
+                IntershopExtension.VALIDATION_REPORT));
+        metricsFileProperty.set(getProject().getLayout().getBuildDirectory().file(
+                IntershopExtension.METRICS_DIR + "/" + getName() + ".json"));
+    }
+
+    private final Property<String> cartridgeNameProperty = getProject().getObjects().property(String.class);
+
+    @Input
+    public String getCartridgeName() {
+        return cartridgeNameProperty.get();
+    }
+
+    public void setCartridgeName(String cartridgeName) {
+        cartridgeNameProperty.set(cartridgeName);
+    }
+
+    public void provideCartridgeName(Provider<String> cartridgeName) {
+        cartridgeNameProperty.set(cartridgeName);
+    }
+
+    private final ConfigurableFileCollection localFilesProperty = getProject().files();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getLocalFiles() {
+        return localFilesProperty;
+    }
+
+    public void setLocalFiles(FileCollection files) {
+        localFilesProperty.setFrom(files);
+    }
+
+    private final ConfigurableFileCollection shareFilesProperty = getProject().files();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getShareFiles() {
+        return shareFilesProperty;
+    }
+
+    public void setShareFiles(FileCollection files) {
+        shareFilesProperty.setFrom(files);
+    }
+
+    private final ConfigurableFileCollection cartridgeFilesProperty = getProject().files();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getCartridgeFiles() {
+        return cartridgeFilesProperty;
+    }
+
+    public void setCartridgeFiles(FileCollection files) {
+        cartridgeFilesProperty.setFrom(files);
+    }
+
+    private final ConfigurableFileCollection staticLibsProperty = getProject().files();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getStaticLibs() {
+        return staticLibsProperty;
+    }
+
+    public void setStaticLibs(FileCollection files) {
+        staticLibsProperty.setFrom(files);
+    }
+
+    private final List<PackageSources> packages = new ArrayList<>();
+
+    /**
+     * Configured packages of the cartridge
+     *
+     * @return list of type and sources of all packages
+     */
+    @Nested
+    public List<PackageSources> getPackages() {
+        return Collections.unmodifiableList(packages);
+    }
+
+    /**
+     * Adds a configured package to the validation.
+     *
+     * @param type      provides the type of the package, eg. 'share'
+     * @param sources   sources of the package
+     */
+    public void addPackage(Provider<String> type, FileCollection sources) {
+        packages.add(new PackageSources(type, sources));
+    }
+
+    private final RegularFileProperty reportFileProperty = getProject().getLayout().fileProperty();
+
+    /**
+     * JSON report of the validation with the number of files
+     * and packages for each package type.
+     *
+     * @return provides the report file
+     */
+    @OutputFile
+    public RegularFileProperty getReportFile() {
+        return reportFileProperty;
+    }
+
+    public void setReportFile(File reportFile) {
+        reportFileProperty.set(reportFile);
+    }
+
+    public void provideReportFile(Provider<RegularFile> reportFile) {
+        reportFileProperty.set(reportFile);
+    }
+
+    private final RegularFileProperty metricsFileProperty = getProject().getLayout().fileProperty();
+
+    /**
+     * JSON report with the metrics of the last validation.
+     *
+     * @return the metrics report
+     */
+    @LocalState
+    public File getMetricsFile() {
+        return metricsFileProperty.get().getAsFile();
+    }
+
+    public void setMetricsFile(File metricsFile) {
+        metricsFileProperty.set(metricsFile);
+    }
+
+    public void provideMetricsFile(Provider<RegularFile> metricsFile) {
+        metricsFileProperty.set(metricsFile);
+    }
+
     @TaskAction
     public void validateConfiguration() {
-        final IntershopExtension extension = getProject().getExtensions().getByType(IntershopExtension.class);
-
-        // calculate data for local files
-        int localFilesSize = extension.getPackages().getLocalFiles().filter(File::isFile).getFiles().size();
-        int localConfiguredPkgSize = extension.getPackages().getPackageContainer()
-                .matching(pkg -> pkg.getNameExtension().equals(PackageContainer.LOCAL_NAME)).size();
-        int localValidPkgSize = extension.getPackages().getPackageContainer()
-                .matching(pkg -> pkg.getNameExtension().equals(PackageContainer.LOCAL_NAME) &&
-                        ! pkg.getSources().filter(File::isFile).getFiles().isEmpty()).size();
-
-        // calculate share for local files
-        int shareFilesSize = extension.getPackages().getShareFiles().filter(File::isFile).getFiles().size();
-        int shareConfiguredPkgSize = extension.getPackages().getPackageContainer()
-                .matching(pkg -> pkg.getNameExtension().equals(PackageContainer.SHARE_NAME)).size();
-        int shareValidPkgSize = extension.getPackages().getPackageContainer()
-                .matching(pkg -> pkg.getNameExtension().equals(PackageContainer.SHARE_NAME) &&
-                        ! pkg.getSources().filter(File::isFile).getFiles().isEmpty()).size();
-
-        // calculate data for cartridge files
-        int cartridgeFilesSize = extension.getPackages().getCartridgeFiles()
-                .minus(extension.getStaticLibs()).filter(File::isFile).getFiles().size();
-        int cartridgeConfiguredPkgSize = extension.getPackages().getPackageContainer()
-                .matching(pkg -> pkg.getNameExtension().equals(PackageContainer.CARTRIDGE_NAME)).size();
-        int cartridgeValidPkgSize = extension.getPackages().getPackageContainer()
-                .matching(pkg -> pkg.getNameExtension().equals(PackageContainer.CARTRIDGE_NAME) &&
-                        ! pkg.getSources().minus(extension.getStaticLibs()).filter(File::isFile).getFiles().isEmpty()).size();
-
-        StringBuilder header = new StringBuilder();
-        header.append("-----------------------------------------------------------------------------").append("\n");
-        header.append("Intershop Cartridge '").append(getProject().getName());
-
-        boolean warn = false;
-        StringBuilder warnMessage = new StringBuilder("\n");
-        warnMessage.append(header).append("' configuration - WARNING").append("\n");
-        warnMessage.append("The cartridge '").append(getProject().getName());
-        warnMessage.append("' contains files, but there are no configured packages.").append("\n\n");
-
-        boolean error = false;
-        StringBuilder errorMessage = new StringBuilder("\n");
-        errorMessage.append(header).append("' configuration - ERRORS").append("\n");
-        errorMessage.append("There are configured packages, but without source files.").append("\n\n");
-
-        if(localFilesSize > 0 && localConfiguredPkgSize == 0) {
-            // There are local files, but no configured local package -> warning
-            warnMessage.append("   There are ").append(localFilesSize).append(" local file(s) and no local package.").append("\n");
-            warnMessage.append("   -> Add configuration 'local' to Intershop extension.").append("\n");
-            warn = true;
-        } else  if(localValidPkgSize < localConfiguredPkgSize) {
-            // There are configured local packages, but the package will be empty -> error
-            errorMessage.append("   Local package is empty!").append("\n");
-            errorMessage.append("   -> Remove configuration 'local' from Intershop extension.").append("\n");
-            error = true;
+        PackagingMetrics metrics = new PackagingMetrics(getCartridgeName());
+        metrics.start();
+        CartridgeValidator.Result result = createValidator().validate();
+        metrics.stop();
+
+        JsonReport.write(getReportFile().get().getAsFile(), result.toReport());
+        PackagingMetrics.writeReport(getMetricsFile(), getPath(), metrics, result.getPackageMetrics());
+
+        if(result.hasWarnings()) {
+            System.out.println(result.getWarningMessage());
         }
+        if(result.hasErrors()) {
+            System.err.println(result.getErrorMessage());
+            throw new InvalidUserDataException("There are configured packages, but without source files.");
+        }
+    }
 
-        if(shareFilesSize > 0 && shareConfiguredPkgSize == 0) {
-            // There are share files, but no configured share package -> warning
-            warnMessage.append("   There are ").append(shareFilesSize).append(" share file(s) and no share package.").append("\n");
-            warnMessage.append("   -> Add configuration 'share' to Intershop extension.").append("\n");
-            warn = true;
-        } else if(shareValidPkgSize < shareConfiguredPkgSize) {
-            // There are configured share packages, but the package will be empty -> error
-            errorMessage.append("   Share package is empty!").append("\n");
-            errorMessage.append("   -> Remove configuration 'share' from Intershop extension.").append("\n");
-            error = true;
+    /**
+     * Creates a validator with the configuration of this task.
+     *
+     * @return validator of the cartridge
+     */
+    public CartridgeValidator createValidator() {
+        CartridgeValidator validator = new CartridgeValidator(getCartridgeName());
+        validator.setLocalFiles(SourceFileIndex.resolveRoots(getLocalFiles()));
+        validator.setShareFiles(SourceFileIndex.resolveRoots(getShareFiles()));
+        validator.setCartridgeFiles(SourceFileIndex.resolveRoots(getCartridgeFiles()));
+        validator.setStaticLibs(getStaticLibs().getFiles());
+        for(PackageSources pkg : packages) {
+            validator.addPackage(pkg.getType(), SourceFileIndex.resolveRoots(pkg.getSources()));
         }
+        return validator;
+    }
+
+    /**
+     * Type and sources of a configured package.
+     */
+    public static class PackageSources {
 
-        if(cartridgeFilesSize > 0 && cartridgeConfiguredPkgSize == 0) {
-            // There are cartridge files, but no configured cartridge package -> warning
-            warnMessage.append("   There are ").append(cartridgeFilesSize).append(" cartridge file(s) and no cartridge package.").append("\n");
-            warnMessage.append("   -> Add configuration 'cartridge' to Intershop extension.").append("\n");
-            warn = true;
-        } else if(cartridgeValidPkgSize < cartridgeConfiguredPkgSize) {
-            // There are configured cartridge packages, but the package will be empty -> error
-            errorMessage.append("   Cartridge package is empty!").append("\n");
-            errorMessage.append("   -> Remove configuration 'cartridge' from Intershop extension.").append("\n");
-            error = true;
+        private final Provider<String> type;
+        private final FileCollection sources;
+
+        PackageSources(Provider<String> type, FileCollection sources) {
+            this.type = type;
+            this.sources = sources;
         }
 
-        if(warn) {
-            warnMessage.append("-----------------------------------------------------------------------------");
-            System.out.println(warnMessage.toString());
+        @Input
+        public String getType() {
+            return type.get();
         }
-        if(error) {
-            errorMessage.append("-----------------------------------------------------------------------------");
-            System.err.println(errorMessage.toString());
-            throw new InvalidUserDataException("There are configured packages, but without source files.");
+
+        @InputFiles
+        @PathSensitive(PathSensitivity.RELATIVE)
+        public FileCollection getSources() {
+            return sources;
         }
     }
 }
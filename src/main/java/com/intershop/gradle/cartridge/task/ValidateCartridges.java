@@ -0,0 +1,366 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.task;
+
+import com.intershop.gradle.cartridge.extension.IntershopExtension;
+import com.intershop.gradle.cartridge.util.CartridgeValidator;
+import com.intershop.gradle.cartridge.util.JsonReport;
+import com.intershop.gradle.cartridge.util.PackagingMetrics;
+import com.intershop.gradle.cartridge.util.SourceFileIndex;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.LocalState;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Validates the package configuration of all cartridges
+ * of a multi project build. The cartridges are validated
+ * at the same time on a bounded thread pool, the result is
+ * written to one consolidated JSON report.
+ *
+ * If fail fast is enabled, the validation stops with the
+ * first cartridge with errors.
+ */
+@CacheableTask
+public class ValidateCartridges extends DefaultTask {
+
+    public ValidateCartridges() {
+        maxParallelValidationsProperty.set(Runtime.getRuntime().availableProcessors());
+        failFastProperty.set(true);
+        reportFileProperty.set(getProject().getLayout().getBuildDirectory().file(
+                IntershopExtension.VALIDATION_AGGREGATE_REPORT));
+        metricsFileProperty.set(getProject().getLayout().getBuildDirectory().file(
+                IntershopExtension.METRICS_DIR + "/" + getName() + ".json"));
+    }
+
+    private final List<Provider<CartridgeSources>> cartridgeSources = new ArrayList<>();
+
+    /**
+     * Configuration of all cartridges of the build.
+     *
+     * @return list of the cartridge configurations
+     */
+    @Nested
+    public List<CartridgeSources> getCartridges() {
+        List<CartridgeSources> result = new ArrayList<>();
+        for(Provider<CartridgeSources> cartridge : cartridgeSources) {
+            result.add(cartridge.get());
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Adds the configuration of the validation task
+     * of a cartridge to this validation. The task is
+     * configured, when the inputs of this validation
+     * are used.
+     *
+     * @param task  provides the validation task of a cartridge project
+     */
+    public void addCartridge(Provider<ValidateCartridge> task) {
+        cartridgeSources.add(task.map(ValidateCartridges::createSources));
+    }
+
+    private static CartridgeSources createSources(ValidateCartridge task) {
+        return new CartridgeSources(task.getCartridgeName(),
+                task.getLocalFiles(), task.getShareFiles(), task.getCartridgeFiles(), task.getStaticLibs(),
+                task.getPackages());
+    }
+
+    private final Property<Integer> maxParallelValidationsProperty = getProject().getObjects().property(Integer.class);
+
+    /**
+     * Maximum number of cartridges, that are validated
+     * at the same time.
+     *
+     * @return size of the thread pool, default is the number of processors
+     */
+    @Internal
+    public int getMaxParallelValidations() {
+        return maxParallelValidationsProperty.get();
+    }
+
+    public void setMaxParallelValidations(int maxParallelValidations) {
+        maxParallelValidationsProperty.set(maxParallelValidations);
+    }
+
+    public void provideMaxParallelValidations(Provider<Integer> maxParallelValidations) {
+        maxParallelValidationsProperty.set(maxParallelValidations);
+    }
+
+    private final Property<Boolean> failFastProperty = getProject().getObjects().property(Boolean.class);
+
+    /**
+     * The validation stops with the first cartridge with errors,
+     * if this is true. Running validations are cancelled.
+     *
+     * @return true, if the validation stops with the first error
+     */
+    @Internal
+    public boolean isFailFast() {
+        return failFastProperty.get();
+    }
+
+    public void setFailFast(boolean failFast) {
+        failFastProperty.set(failFast);
+    }
+
+    public void provideFailFast(Provider<Boolean> failFast) {
+        failFastProperty.set(failFast);
+    }
+
+    private final RegularFileProperty reportFileProperty = getProject().getLayout().fileProperty();
+
+    /**
+     * Consolidated JSON report with the result of all cartridges.
+     *
+     * @return provides the report file
+     */
+    @OutputFile
+    public RegularFileProperty getReportFile() {
+        return reportFileProperty;
+    }
+
+    public void setReportFile(File reportFile) {
+        reportFileProperty.set(reportFile);
+    }
+
+    public void provideReportFile(Provider<RegularFile> reportFile) {
+        reportFileProperty.set(reportFile);
+    }
+
+    private final RegularFileProperty metricsFileProperty = getProject().getLayout().fileProperty();
+
+    /**
+     * JSON report with the metrics of the last validation. The
+     * metrics of each cartridge are the sum of its packages.
+     *
+     * @return the metrics report
+     */
+    @LocalState
+    public File getMetricsFile() {
+        return metricsFileProperty.get().getAsFile();
+    }
+
+    public void setMetricsFile(File metricsFile) {
+        metricsFileProperty.set(metricsFile);
+    }
+
+    public void provideMetricsFile(Provider<RegularFile> metricsFile) {
+        metricsFileProperty.set(metricsFile);
+    }
+
+    @TaskAction
+    public void validateConfigurations() {
+        if(getMaxParallelValidations() < 1) {
+            throw new InvalidUserDataException("The maximum number of parallel validations must be 1 or larger.");
+        }
+
+        PackagingMetrics metrics = new PackagingMetrics(getName());
+        metrics.start();
+
+        List<CartridgeSources> cartridges = getCartridges();
+        List<CartridgeValidator.Result> results = new ArrayList<>();
+        boolean stopped = false;
+
+        if(! cartridges.isEmpty()) {
+            // the file collections are resolved on this thread,
+            // the validators use only the resolved files
+            List<CartridgeValidator> validators = new ArrayList<>();
+            for(CartridgeSources cartridge : cartridges) {
+                validators.add(cartridge.createValidator());
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(getMaxParallelValidations(), cartridges.size()));
+            try {
+                CompletionService<CartridgeValidator.Result> completionService = new ExecutorCompletionService<>(executor);
+                for(CartridgeValidator validator : validators) {
+                    completionService.submit(validator::validate);
+                }
+
+                for(int i = 0; i < cartridges.size(); i++) {
+                    CartridgeValidator.Result result = completionService.take().get();
+                    results.add(result);
+                    if(result.hasErrors() && isFailFast()) {
+                        stopped = i < cartridges.size() - 1;
+                        break;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new GradleException("The validation of the cartridges was interrupted.", ex);
+            } catch (ExecutionException ex) {
+                throw new GradleException("The validation of a cartridge failed: " + ex.getCause().getMessage(), ex.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        results.sort(Comparator.comparing(CartridgeValidator.Result::getCartridgeName));
+        metrics.stop();
+        writeReport(results, cartridges.size(), stopped);
+        writeMetrics(metrics, results);
+
+        StringBuilder warnings = new StringBuilder();
+        StringBuilder errors = new StringBuilder();
+        for(CartridgeValidator.Result result : results) {
+            if(result.hasWarnings()) {
+                warnings.append(result.getWarningMessage()).append("\n");
+            }
+            if(result.hasErrors()) {
+                errors.append(result.getErrorMessage()).append("\n");
+            }
+        }
+
+        if(warnings.length() > 0) {
+            getLogger().warn(warnings.toString());
+        }
+        if(errors.length() > 0) {
+            getLogger().error(errors.toString());
+            throw new InvalidUserDataException("There are configured packages, but without source files. See the report "
+                    + getReportFile().get().getAsFile() + " for all cartridges.");
+        }
+    }
+
+    private void writeReport(List<CartridgeValidator.Result> results, int configuredCartridges, boolean stopped) {
+        String status = CartridgeValidator.STATUS_OK;
+        List<Map<String, Object>> cartridgeReports = new ArrayList<>();
+        for(CartridgeValidator.Result result : results) {
+            if(result.hasErrors()) {
+                status = CartridgeValidator.STATUS_ERROR;
+            } else if(result.hasWarnings() && ! CartridgeValidator.STATUS_ERROR.equals(status)) {
+                status = CartridgeValidator.STATUS_WARNING;
+            }
+            cartridgeReports.add(result.toReport());
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("status", status);
+        report.put("validatedCartridges", results.size());
+        report.put("configuredCartridges", configuredCartridges);
+        report.put("stopped", stopped);
+        report.put("cartridges", cartridgeReports);
+
+        JsonReport.write(getReportFile().get().getAsFile(), report);
+    }
+
+    private void writeMetrics(PackagingMetrics metrics, List<CartridgeValidator.Result> results) {
+        List<PackagingMetrics> cartridgeMetrics = new ArrayList<>();
+        for(CartridgeValidator.Result result : results) {
+            PackagingMetrics cartridge = new PackagingMetrics(result.getCartridgeName());
+            result.getPackageMetrics().forEach(cartridge::add);
+            cartridgeMetrics.add(cartridge);
+        }
+        PackagingMetrics.writeReport(getMetricsFile(), getPath(), metrics, cartridgeMetrics);
+    }
+
+    /**
+     * Files and packages of a single cartridge.
+     */
+    public static class CartridgeSources {
+
+        private final String cartridgeName;
+        private final FileCollection localFiles;
+        private final FileCollection shareFiles;
+        private final FileCollection cartridgeFiles;
+        private final FileCollection staticLibs;
+        private final List<ValidateCartridge.PackageSources> packages;
+
+        CartridgeSources(String cartridgeName, FileCollection localFiles, FileCollection shareFiles,
+                         FileCollection cartridgeFiles, FileCollection staticLibs,
+                         List<ValidateCartridge.PackageSources> packages) {
+            this.cartridgeName = cartridgeName;
+            this.localFiles = localFiles;
+            this.shareFiles = shareFiles;
+            this.cartridgeFiles = cartridgeFiles;
+            this.staticLibs = staticLibs;
+            this.packages = packages;
+        }
+
+        @Input
+        public String getCartridgeName() {
+            return cartridgeName;
+        }
+
+        @InputFiles
+        @PathSensitive(PathSensitivity.RELATIVE)
+        public FileCollection getLocalFiles() {
+            return localFiles;
+        }
+
+        @InputFiles
+        @PathSensitive(PathSensitivity.RELATIVE)
+        public FileCollection getShareFiles() {
+            return shareFiles;
+        }
+
+        @InputFiles
+        @PathSensitive(PathSensitivity.RELATIVE)
+        public FileCollection getCartridgeFiles() {
+            return cartridgeFiles;
+        }
+
+        @InputFiles
+        @PathSensitive(PathSensitivity.RELATIVE)
+        public FileCollection getStaticLibs() {
+            return staticLibs;
+        }
+
+        @Nested
+        public List<ValidateCartridge.PackageSources> getPackages() {
+            return packages;
+        }
+
+        CartridgeValidator createValidator() {
+            CartridgeValidator validator = new CartridgeValidator(cartridgeName);
+            validator.setLocalFiles(SourceFileIndex.resolveRoots(localFiles));
+            validator.setShareFiles(SourceFileIndex.resolveRoots(shareFiles));
+            validator.setCartridgeFiles(SourceFileIndex.resolveRoots(cartridgeFiles));
+            validator.setStaticLibs(staticLibs.getFiles());
+            for(ValidateCartridge.PackageSources pkg : packages) {
+                validator.addPackage(pkg.getType(), SourceFileIndex.resolveRoots(pkg.getSources()));
+            }
+            return validator;
+        }
+    }
+}
@@ -0,0 +1,619 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.task;
+
+import com.intershop.gradle.cartridge.archive.ComponentArchiveSpec;
+import com.intershop.gradle.cartridge.archive.ComponentArchiveWriter;
+import com.intershop.gradle.cartridge.extension.ComponentPackage;
+import com.intershop.gradle.cartridge.util.PackagingMetrics;
+import com.intershop.gradle.cartridge.util.SourceFileIndex;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.NamedDomainObjectSet;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.util.PatternSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the sources of the component packages and updates
+ * the archives after each change, until the build is cancelled.
+ *
+ * The entries of all packages are kept in memory. After a change
+ * only the entries of the changed paths are resolved again and
+ * the archives are updated incrementally, unchanged entries are
+ * copied without a new compression. For exploded packages the
+ * exploded directory is synchronized instead of the archive.
+ */
+public class WatchComponents extends DefaultTask {
+
+    /**
+     * Changes within this period are handled together,
+     * eg. if an editor saves several files.
+     */
+    private static final long QUIET_PERIOD = 20;
+
+    public WatchComponents() {
+        packageNamesProperty.set(Collections.emptyList());
+        idleTimeoutProperty.set(0L);
+        // the sources are checked during the execution
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    private NamedDomainObjectSet<ComponentPackage> packageContainer = null;
+
+    /**
+     * All configured packages of the component.
+     *
+     * @return the container of the component packages
+     */
+    @Internal
+    public NamedDomainObjectSet<ComponentPackage> getPackageContainer() {
+        return packageContainer;
+    }
+
+    public void setPackageContainer(NamedDomainObjectSet<ComponentPackage> packageContainer) {
+        this.packageContainer = packageContainer;
+    }
+
+    private final Map<String, Provider<ZipComponent>> zipTasks = new HashMap<>();
+    private final Map<String, Provider<ExplodeComponent>> explodeTasks = new HashMap<>();
+
+    /**
+     * Adds the tasks of a package. The watch mode takes the
+     * configuration of these tasks before it starts, the
+     * project is not used during the execution.
+     *
+     * @param pkg           the component package
+     * @param zipTask       provides the zip task of the package
+     * @param explodeTask   provides the explode task of the package
+     */
+    public void addPackageTasks(ComponentPackage pkg, Provider<ZipComponent> zipTask, Provider<ExplodeComponent> explodeTask) {
+        zipTasks.put(pkg.getTaskName(), zipTask);
+        explodeTasks.put(pkg.getExplodeTaskName(), explodeTask);
+    }
+
+    private final ListProperty<String> packageNamesProperty = getProject().getObjects().listProperty(String.class);
+
+    /**
+     * Names of the watched packages, eg. 'share' or 'cartridge'.
+     * All packages are watched, if the list is empty.
+     *
+     * @return list of package names
+     */
+    @Internal
+    public List<String> getPackageNames() {
+        return packageNamesProperty.get();
+    }
+
+    public void setPackageNames(List<String> packageNames) {
+        packageNamesProperty.set(packageNames);
+    }
+
+    public void providePackageNames(Provider<List<String>> packageNames) {
+        packageNamesProperty.set(packageNames);
+    }
+
+    private final Property<Long> idleTimeoutProperty = getProject().getObjects().property(Long.class);
+
+    /**
+     * The watch mode stops, if there is no change for this
+     * time in milliseconds. The default is 0, the watch mode
+     * runs until the build is cancelled.
+     *
+     * @return the idle timeout in milliseconds
+     */
+    @Internal
+    public long getIdleTimeout() {
+        return idleTimeoutProperty.get();
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        if(idleTimeout < 0) {
+            throw new InvalidUserDataException("The idle timeout of the watch mode must not be negative (0 disables it).");
+        }
+        idleTimeoutProperty.set(idleTimeout);
+    }
+
+    public void provideIdleTimeout(Provider<Long> idleTimeout) {
+        idleTimeoutProperty.set(idleTimeout);
+    }
+
+    /**
+     * Zip tasks of the watched packages, that are not exploded.
+     * The archives are created by these tasks before the watch
+     * mode starts.
+     *
+     * @return list of task names
+     */
+    @Internal
+    public List<String> getZipTaskNames() {
+        List<String> taskNames = new ArrayList<>();
+        for(ComponentPackage pkg : getWatchedPackages()) {
+            if(! pkg.isExploded()) {
+                taskNames.add(pkg.getTaskName());
+            }
+        }
+        return taskNames;
+    }
+
+    /**
+     * Explode tasks of the watched exploded packages. The
+     * directories are synchronized by these tasks before the
+     * watch mode starts.
+     *
+     * @return list of task names
+     */
+    @Internal
+    public List<String> getExplodeTaskNames() {
+        List<String> taskNames = new ArrayList<>();
+        for(ComponentPackage pkg : getWatchedPackages()) {
+            if(pkg.isExploded()) {
+                taskNames.add(pkg.getExplodeTaskName());
+            }
+        }
+        return taskNames;
+    }
+
+    private List<ComponentPackage> getWatchedPackages() {
+        List<ComponentPackage> packages = new ArrayList<>();
+        if(packageContainer != null) {
+            List<String> packageNames = getPackageNames();
+            for(ComponentPackage pkg : packageContainer) {
+                if(packageNames.isEmpty() || packageNames.contains(pkg.getName())) {
+                    packages.add(pkg);
+                }
+            }
+        }
+        return packages;
+    }
+
+    @TaskAction
+    public void watch() {
+        List<WatchedPackage> packages = new ArrayList<>();
+        for(String taskName : getZipTaskNames()) {
+            packages.add(WatchedPackage.forArchive(getPackageTask(zipTasks, taskName)));
+        }
+        for(String taskName : getExplodeTaskNames()) {
+            packages.add(WatchedPackage.forExplodedDir(getPackageTask(explodeTasks, taskName)));
+        }
+        if(packages.isEmpty()) {
+            getLogger().warn("There are no packages to watch.");
+            return;
+        }
+
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            Watcher watcher = new Watcher(watchService);
+
+            // changes after the creation of the archives are added
+            for(WatchedPackage pkg : packages) {
+                watcher.register(pkg, pkg.init(getLogger()));
+            }
+            getLogger().lifecycle("Watching {} package(s) for changes, stop the build to end the watch mode.", packages.size());
+
+            while(true) {
+                Map<WatchedPackage, Map<Path, Set<Path>>> changes = watcher.waitForChanges(getIdleTimeout());
+                if(changes == null) {
+                    getLogger().lifecycle("No changes for {} ms, the watch mode is stopped.", getIdleTimeout());
+                    break;
+                }
+                for(Map.Entry<WatchedPackage, Map<Path, Set<Path>>> change : changes.entrySet()) {
+                    watcher.register(change.getKey(), change.getKey().update(change.getValue(), getLogger()));
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("The sources of the packages can not be watched.", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            getLogger().lifecycle("The watch mode is stopped.");
+        }
+    }
+
+    private <T> T getPackageTask(Map<String, Provider<T>> tasks, String taskName) {
+        Provider<T> task = tasks.get(taskName);
+        if(task == null) {
+            throw new InvalidUserDataException("The task " + taskName + " of a watched package is not added to " + getPath() + ".");
+        }
+        return task.get();
+    }
+
+    /**
+     * Registers the source directories of the
+     * packages and collects the changes.
+     */
+    private static class Watcher {
+
+        private final WatchService watchService;
+        private final Map<Path, WatchKey> watchedDirs = new HashMap<>();
+        private final Map<WatchKey, Set<WatchedPackage>> watchedPackages = new HashMap<>();
+
+        private Watcher(WatchService watchService) {
+            this.watchService = watchService;
+        }
+
+        /**
+         * Registers the directories of the package, new
+         * directories are added after each update.
+         */
+        private void register(WatchedPackage pkg, Set<Path> dirs) throws IOException {
+            for(Path dir : dirs) {
+                if(! Files.isDirectory(dir)) {
+                    continue;
+                }
+                WatchKey key = watchedDirs.get(dir);
+                if(key == null) {
+                    key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                    watchedDirs.put(dir, key);
+                }
+                watchedPackages.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(pkg);
+            }
+        }
+
+        /**
+         * Waits for the next change and collects all changes
+         * of the quiet period after this change.
+         *
+         * @param idleTimeout   maximum waiting time in milliseconds, 0 waits until the next change
+         * @return the changed paths of the affected packages by directory, the paths of a directory
+         *         are null, if events were lost. The result is null, if there was no change.
+         */
+        private Map<WatchedPackage, Map<Path, Set<Path>>> waitForChanges(long idleTimeout) throws InterruptedException {
+            WatchKey key = idleTimeout > 0 ? watchService.poll(idleTimeout, TimeUnit.MILLISECONDS) : watchService.take();
+            if(key == null) {
+                return null;
+            }
+
+            Map<WatchedPackage, Map<Path, Set<Path>>> changes = new LinkedHashMap<>();
+            while(key != null) {
+                Path dir = (Path) key.watchable();
+                Set<Path> changedPaths = new LinkedHashSet<>();
+                for(WatchEvent<?> event : key.pollEvents()) {
+                    if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        changedPaths = null;
+                        break;
+                    }
+                    changedPaths.add(dir.resolve((Path) event.context()));
+                }
+
+                for(WatchedPackage pkg : watchedPackages.getOrDefault(key, Collections.emptySet())) {
+                    Map<Path, Set<Path>> packageChanges = changes.computeIfAbsent(pkg, p -> new HashMap<>());
+                    if(changedPaths == null) {
+                        packageChanges.put(dir, null);
+                    } else if(! packageChanges.containsKey(dir)) {
+                        packageChanges.put(dir, new LinkedHashSet<>(changedPaths));
+                    } else if(packageChanges.get(dir) != null) {
+                        packageChanges.get(dir).addAll(changedPaths);
+                    }
+                }
+
+                if(! key.reset()) {
+                    watchedPackages.remove(key);
+                    watchedDirs.values().remove(key);
+                }
+                key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+            }
+            return changes;
+        }
+    }
+
+    /**
+     * A package with the entries of the last archive or the last
+     * exploded directory. The configuration of the package task
+     * is taken before the watch mode starts.
+     *
+     * After a change only the changed paths are resolved again with
+     * the sources of the package. The paths of the sources in the
+     * package are taken from the entries, all entries are resolved
+     * again, if a path is not known or events were lost.
+     */
+    private static class WatchedPackage {
+
+        private final ComponentArchiveSpec settings;
+        private final FileCollection inputFiles;
+        private final FileCollection staticLibs;
+        private final String releaseDirName;
+        private final String prefix;
+        private final boolean exploded;
+        private final boolean hardLinks;
+
+        private final NavigableMap<String, ComponentArchiveSpec.Entry> entries = new TreeMap<>();
+        private final Map<String, EntryState> states = new HashMap<>();
+
+        // source directories with the path in the package without the release directory
+        private final Map<Path, String> dirPaths = new HashMap<>();
+        private final Set<Path> ambiguousDirs = new HashSet<>();
+
+        private WatchedPackage(ComponentArchiveSpec settings, FileCollection inputFiles, FileCollection staticLibs,
+                               String releaseDirName, boolean exploded, boolean hardLinks) {
+            this.settings = settings;
+            this.inputFiles = inputFiles;
+            this.staticLibs = staticLibs;
+            this.releaseDirName = releaseDirName;
+            this.prefix = releaseDirName.isEmpty() ? "" : releaseDirName + "/";
+            this.exploded = exploded;
+            this.hardLinks = hardLinks;
+        }
+
+        private static WatchedPackage forArchive(ZipComponent task) {
+            return new WatchedPackage(task.createArchiveSettings(), task.getInputFiles(), task.getStaticLibs(),
+                    task.getReleaseDirName(), false, false);
+        }
+
+        private static WatchedPackage forExplodedDir(ExplodeComponent task) {
+            return new WatchedPackage(task.createSettings(), task.getInputFiles(), task.getStaticLibs(),
+                    task.getReleaseDirName(), true, task.isHardLinks());
+        }
+
+        /**
+         * Resolves all entries of the package and updates the archive,
+         * if a file was changed after the archive was created. The
+         * exploded directory is synchronized with the entries.
+         *
+         * @return the source directories of the package
+         */
+        private Set<Path> init(Logger logger) throws IOException {
+            long start = System.nanoTime();
+            Set<Path> dirs = new LinkedHashSet<>();
+            for(File root : SourceFileIndex.resolveRoots(inputFiles)) {
+                if(root.isDirectory()) {
+                    addDirPath(root.toPath().toAbsolutePath(), "", dirs);
+                } else if(root.getParentFile() != null) {
+                    dirs.add(root.getParentFile().toPath().toAbsolutePath());
+                }
+            }
+
+            File target = settings.getArchiveFile();
+            List<File> changedFiles = new ArrayList<>();
+            for(ComponentArchiveSpec.Entry entry : resolve(inputFiles).getEntries()) {
+                entries.put(entry.getPath(), entry);
+                states.put(entry.getPath(), new EntryState(entry));
+                addDirPaths(entry, dirs);
+                if(! entry.isDirectory() && entry.getFile().lastModified() >= target.lastModified()) {
+                    changedFiles.add(entry.getFile());
+                }
+            }
+
+            if(exploded) {
+                ExplodeComponent.sync(createSpec(), target.toPath(), hardLinks, logger);
+                logger.lifecycle("Exploded package {} updated in {} ms.", target, getMillis(start));
+            } else if(! changedFiles.isEmpty() || ! target.isFile()) {
+                write(changedFiles, start, logger);
+            }
+            return dirs;
+        }
+
+        /**
+         * Resolves the changed paths again and updates the archive
+         * or the exploded directory, if an entry was changed.
+         *
+         * @param changes   changed paths by directory, null for lost events
+         * @return new source directories of the package
+         */
+        private Set<Path> update(Map<Path, Set<Path>> changes, Logger logger) throws IOException {
+            long start = System.nanoTime();
+            Set<String> includes = new LinkedHashSet<>();
+            Set<String> removedPaths = new HashSet<>();
+
+            for(Map.Entry<Path, Set<Path>> change : changes.entrySet()) {
+                String dirPath = dirPaths.get(change.getKey());
+                if(dirPath == null || change.getValue() == null || ambiguousDirs.contains(change.getKey())) {
+                    logger.info("All entries of {} are resolved again after a change of {}.",
+                            settings.getArchiveFile().getName(), change.getKey());
+                    return merge(resolve(inputFiles), new HashSet<>(entries.keySet()), start, logger);
+                }
+
+                for(Path changedPath : change.getValue()) {
+                    String path = (dirPath.isEmpty() ? "" : dirPath + "/") + changedPath.getFileName();
+                    includes.add(path);
+                    includes.add(path + "/**");
+
+                    // the entries of a changed path are resolved again
+                    String entryPath = prefix + path;
+                    if(entries.containsKey(entryPath)) {
+                        removedPaths.add(entryPath);
+                    }
+                    removedPaths.addAll(entries.subMap(entryPath + "/", true, entryPath + (char)('/' + 1), false).keySet());
+                }
+            }
+
+            return merge(resolve(inputFiles.getAsFileTree().matching(new PatternSet().include(includes))),
+                    removedPaths, start, logger);
+        }
+
+        /**
+         * Replaces the removed entries with the resolved entries.
+         * Only new and changed entries are written.
+         */
+        private Set<Path> merge(ComponentArchiveSpec resolved, Set<String> removedPaths, long start, Logger logger) throws IOException {
+            Map<String, EntryState> previousStates = new HashMap<>();
+            for(String path : removedPaths) {
+                entries.remove(path);
+                previousStates.put(path, states.remove(path));
+            }
+
+            Set<Path> dirs = new LinkedHashSet<>();
+            List<ComponentArchiveSpec.Entry> changedEntries = new ArrayList<>();
+            for(ComponentArchiveSpec.Entry entry : resolved.getEntries()) {
+                EntryState state = new EntryState(entry);
+                EntryState previous = previousStates.containsKey(entry.getPath()) ?
+                        previousStates.remove(entry.getPath()) : states.get(entry.getPath());
+                entries.put(entry.getPath(), entry);
+                states.put(entry.getPath(), state);
+                addDirPaths(entry, dirs);
+                if(! state.equals(previous)) {
+                    changedEntries.add(entry);
+                }
+            }
+
+            // the remaining paths are not part of the package anymore
+            Set<String> obsoletePaths = previousStates.keySet();
+            if(changedEntries.isEmpty() && obsoletePaths.isEmpty()) {
+                return dirs;
+            }
+
+            if(exploded) {
+                ExplodeComponent.update(settings.getArchiveFile().toPath(), changedEntries, obsoletePaths, hardLinks, logger);
+                logger.lifecycle("Exploded package {} updated in {} ms, {} changed and {} removed entries.",
+                        settings.getArchiveFile(), getMillis(start), changedEntries.size(), obsoletePaths.size());
+            } else {
+                List<File> changedFiles = new ArrayList<>();
+                for(ComponentArchiveSpec.Entry entry : changedEntries) {
+                    if(! entry.isDirectory()) {
+                        changedFiles.add(entry.getFile());
+                    }
+                }
+                write(changedFiles, start, logger);
+            }
+            return dirs;
+        }
+
+        /**
+         * Resolves the entries of files in the same way as the zip task.
+         */
+        private ComponentArchiveSpec resolve(FileCollection files) {
+            ComponentArchiveSpec spec = settings.copySettings();
+            ZipComponent.addEntries(spec, files, staticLibs, releaseDirName,
+                    new PackagingMetrics(settings.getArchiveFile().getName()));
+            return spec;
+        }
+
+        /**
+         * The specification with all current entries
+         * in the order of the paths.
+         */
+        private ComponentArchiveSpec createSpec() {
+            ComponentArchiveSpec spec = settings.copySettings();
+            for(ComponentArchiveSpec.Entry entry : entries.values()) {
+                if(entry.isDirectory()) {
+                    spec.addDirectory(entry.getPath(), entry.getFile());
+                } else {
+                    spec.addFile(entry.getPath(), entry.getFile());
+                }
+            }
+            return spec;
+        }
+
+        /**
+         * Updates the archive, unchanged entries are
+         * copied from the previous archive.
+         */
+        private void write(List<File> changedFiles, long start, Logger logger) throws IOException {
+            ComponentArchiveSpec spec = createSpec();
+            File archiveFile = spec.getArchiveFile();
+            if(archiveFile.isFile()) {
+                spec.setPreviousArchive(archiveFile);
+                changedFiles.forEach(spec::addChangedFile);
+            }
+            new ComponentArchiveWriter().write(spec);
+            logger.lifecycle("Component archive {} updated in {} ms, {} changed file(s).",
+                    archiveFile.getName(), getMillis(start), changedFiles.size());
+        }
+
+        /**
+         * Adds the source directory of an entry and the
+         * parent directory of the source with the paths
+         * in the package.
+         */
+        private void addDirPaths(ComponentArchiveSpec.Entry entry, Set<Path> dirs) {
+            String path = entry.getPath().substring(prefix.length());
+            Path file = entry.getFile().toPath().toAbsolutePath();
+            if(entry.isDirectory()) {
+                addDirPath(file, path, dirs);
+            }
+            if(file.getParent() != null) {
+                int index = path.lastIndexOf('/');
+                addDirPath(file.getParent(), index < 0 ? "" : path.substring(0, index), dirs);
+            }
+        }
+
+        /**
+         * A directory with different paths in the package
+         * is resolved completely after a change.
+         */
+        private void addDirPath(Path dir, String path, Set<Path> dirs) {
+            String previous = dirPaths.putIfAbsent(dir, path);
+            if(previous == null) {
+                dirs.add(dir);
+            } else if(! previous.equals(path)) {
+                ambiguousDirs.add(dir);
+            }
+        }
+
+        private static long getMillis(long start) {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Source file and state of an entry. The state of
+     * directories does not contain the modification time,
+     * because it is changed by the changes of the files.
+     */
+    private static class EntryState {
+
+        private final String file;
+        private final long lastModified;
+        private final long length;
+
+        private EntryState(ComponentArchiveSpec.Entry entry) {
+            this.file = entry.getFile().getAbsolutePath();
+            this.lastModified = entry.isDirectory() ? -1 : entry.getFile().lastModified();
+            this.length = entry.isDirectory() ? -1 : entry.getFile().length();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(! (obj instanceof EntryState)) {
+                return false;
+            }
+            EntryState other = (EntryState) obj;
+            return file.equals(other.file) && lastModified == other.lastModified && length == other.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return file.hashCode() * 31 + Long.hashCode(lastModified);
+        }
+    }
+}
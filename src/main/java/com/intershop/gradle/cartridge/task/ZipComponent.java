@@ -15,50 +15,191 @@
  */
 package com.intershop.gradle.cartridge.task;
 
+import com.intershop.gradle.cartridge.archive.ComponentArchiveSpec;
 import com.intershop.gradle.cartridge.extension.IntershopExtension;
+import com.intershop.gradle.cartridge.util.PackagingMetrics;
+import com.intershop.gradle.cartridge.util.StaticLibIndex;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.file.ConfigurableFileCollection;
-import org.gradle.api.file.DuplicatesStrategy;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.DuplicateFileCopyingException;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.LocalState;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.bundling.Zip;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.workers.IsolationMode;
+import org.gradle.workers.WorkerExecutor;
 
+import javax.inject.Inject;
 import java.io.File;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
 
 @SuppressWarnings("ALL")
+@CacheableTask
 public class ZipComponent extends Zip {
 
+    // only three digits are configured (mask is 0000)
+    public final static int FILE_MODE = 640;
+    public final static int DIR_MODE = 750;
+
+    // same time as the zip task of Gradle, the DOS time of 1980-01-01 is not
+    // valid in all time zones
+    public final static long CONSTANT_TIME_FOR_ZIP_ENTRIES =
+            new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+
+    private final WorkerExecutor workerExecutor;
+
     private final ConfigurableFileCollection inputFilesProperty = getProject().files();
 
+    private final DirectoryProperty destinationDirectoryProperty = getProject().getLayout().directoryProperty();
+    private final RegularFileProperty archiveFileProperty = getProject().getLayout().fileProperty();
+
+    @Inject
+    public ZipComponent(WorkerExecutor workerExecutor) {
+        this.workerExecutor = workerExecutor;
+
+        // the input files are the source of the zip task
+        from(inputFilesProperty);
+
+        // the project is not used during the execution
+        artifactBaseNameProperty.set(getProject().getName());
+
+        destinationDirectoryProperty.set(getProject().getLayout().getBuildDirectory().dir(
+                getProject().provider(this::getDestinationPath)));
+        archiveFileProperty.set(destinationDirectoryProperty.file(
+                getProject().provider(this::getArchiveName)));
+        metricsFileProperty.set(getProject().getLayout().getBuildDirectory().file(
+                IntershopExtension.METRICS_DIR + "/" + getName() + ".json"));
+    }
+
+    /**
+     * The destination directory depends on the package
+     * configuration. It is calculated, when it is used.
+     *
+     * @return provides the destination directory of the archive
+     */
+    @Internal
+    public Provider<Directory> getDestinationDirectory() {
+        return destinationDirectoryProperty;
+    }
+
+    /**
+     * The archive file of this task in the destination directory.
+     *
+     * @return provides the archive file
+     */
     @OutputFile
+    public Provider<RegularFile> getArchiveFile() {
+        return archiveFileProperty;
+    }
+
+    @Internal
+    @Override
     public File getArchivePath() {
-        setBaseName(getArtifactBaseName());
-        setAppendix(getArtifactAppendix());
-        setClassifier(getArtifactClassifier());
+        return archiveFileProperty.get().getAsFile();
+    }
+
+    @Internal
+    @Override
+    public File getDestinationDir() {
+        return destinationDirectoryProperty.get().getAsFile();
+    }
 
+    @Override
+    public void setDestinationDir(File destinationDir) {
+        destinationDirectoryProperty.set(destinationDir);
+    }
+
+    @Internal
+    @Override
+    public String getBaseName() {
+        return getArtifactBaseName();
+    }
+
+    @Internal
+    @Override
+    public String getAppendix() {
+        return getArtifactAppendix();
+    }
+
+    @Internal
+    @Override
+    public String getClassifier() {
+        return getArtifactClassifier();
+    }
+
+    private String getDestinationPath() {
+        return getDestinationPath(getArtifactAppendix(), getArtifactClassifier());
+    }
+
+    /**
+     * Calculates the path of the destination directory
+     * in the build directory of the project.
+     *
+     * @param appendix      appendix of the package, eg. 'share'
+     * @param classifier    OS classifier of the package or an empty string
+     * @return path of the destination directory
+     */
+    public static String getDestinationPath(String appendix, String classifier) {
         StringBuilder path = new StringBuilder();
         path.append(IntershopExtension.MAIN_OUTPUTDIR_NAME);
 
-        if(! getArtifactAppendix().isEmpty()) {
-            path.append("/").append(getAppendix());
+        if(! appendix.isEmpty()) {
+            path.append("/").append(appendix);
         }
-        if(! getArtifactClassifier().isEmpty()) {
-            path.append("_").append(getClassifier());
+        if(! classifier.isEmpty()) {
+            path.append("_").append(classifier);
         }
+        return path.toString();
+    }
 
-        setDestinationDir(getProject().getLayout().getBuildDirectory().dir(path.toString()).get().getAsFile());
-
-        return new File(getDestinationDir(), getArchiveName());
+    /**
+     * Calculates the default archive name of a package
+     * in the same way as the archive task.
+     *
+     * @param baseName      base name of the package
+     * @param appendix      appendix of the package, eg. 'share'
+     * @param version       version or an empty string
+     * @param classifier    OS classifier of the package or an empty string
+     * @return name of the archive file
+     */
+    public static String getArchiveName(String baseName, String appendix, String version, String classifier) {
+        StringBuilder name = new StringBuilder(baseName);
+        for(String part : new String[] { appendix, version, classifier }) {
+            if(! part.isEmpty()) {
+                name.append("-").append(part);
+            }
+        }
+        return name.append(".").append(ZIP_EXTENSION).toString();
     }
 
     @InputFiles
+    @SkipWhenEmpty
+    @PathSensitive(PathSensitivity.RELATIVE)
     public FileCollection getInputFiles() {
-        // necessary to  trigger the Zip task!
-        from(inputFilesProperty);
         return inputFilesProperty;
     }
 
@@ -66,9 +207,23 @@ public class ZipComponent extends Zip {
         inputFilesProperty.setFrom(files);
     }
 
+    /**
+     * The source of the copy spec is the same as the input files.
+     * It is not used as an input, because the path sensitivity
+     * of the copy task is absolute.
+     *
+     * @return the source files of this task
+     */
+    @Override
+    @Internal
+    public FileCollection getSource() {
+        return super.getSource();
+    }
+
     private final ConfigurableFileCollection staticLibsProperty = getProject().files();
 
     @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
     public FileCollection getStaticLibs() {
         return staticLibsProperty;
     }
@@ -126,7 +281,7 @@ public class ZipComponent extends Zip {
 
     @Input
     public String getArtifactBaseName() {
-        return artifactBaseNameProperty.getOrElse(getProject().getName());
+        return artifactBaseNameProperty.get();
     }
 
     public void setArtifactBaseName(String baseName) {
@@ -137,31 +292,393 @@ public class ZipComponent extends Zip {
         artifactBaseNameProperty.set(baseName);
     }
 
+    private final Property<Integer> compressionLevelProperty = getProject().getObjects().property(Integer.class);
+
+    @Input
+    public int getCompressionLevel() {
+        return compressionLevelProperty.getOrElse(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public void setCompressionLevel(int level) {
+        compressionLevelProperty.set(level);
+    }
+
+    public void provideCompressionLevel(Provider<Integer> level) {
+        compressionLevelProperty.set(level);
+    }
+
+    private final Property<Boolean> storeOnlyProperty = getProject().getObjects().property(Boolean.class);
+
+    @Input
+    public boolean isStoreOnly() {
+        return storeOnlyProperty.getOrElse(false);
+    }
+
+    public void setStoreOnly(boolean storeOnly) {
+        storeOnlyProperty.set(storeOnly);
+    }
+
+    public void provideStoreOnly(Provider<Boolean> storeOnly) {
+        storeOnlyProperty.set(storeOnly);
+    }
+
+    private final ListProperty<String> storePatternsProperty = getProject().getObjects().listProperty(String.class);
+
+    @Input
+    public List<String> getStorePatterns() {
+        return storePatternsProperty.getOrElse(Collections.emptyList());
+    }
+
+    public void setStorePatterns(List<String> patterns) {
+        storePatternsProperty.set(patterns);
+    }
+
+    public void provideStorePatterns(Provider<List<String>> patterns) {
+        storePatternsProperty.set(patterns);
+    }
+
+    private final Property<Long> parallelDeflateThresholdProperty = getProject().getObjects().property(Long.class);
+
+    /**
+     * Files with this size or larger are compressed block-parallel,
+     * 0 disables parallel deflate.
+     *
+     * @return threshold in bytes
+     */
+    @Input
+    public long getParallelDeflateThreshold() {
+        return parallelDeflateThresholdProperty.getOrElse(0L);
+    }
+
+    public void setParallelDeflateThreshold(long threshold) {
+        parallelDeflateThresholdProperty.set(threshold);
+    }
+
+    public void provideParallelDeflateThreshold(Provider<Long> threshold) {
+        parallelDeflateThresholdProperty.set(threshold);
+    }
+
+    private final Property<Boolean> packagingCacheProperty = getProject().getObjects().property(Boolean.class);
+
+    /**
+     * Compressed entries are taken from the packaging
+     * cache, if this is true. The content of the archive
+     * does not depend on this configuration.
+     *
+     * @return true if the packaging cache is used
+     */
+    @Internal
+    public boolean isPackagingCache() {
+        return packagingCacheProperty.getOrElse(false);
+    }
+
+    public void setPackagingCache(boolean packagingCache) {
+        packagingCacheProperty.set(packagingCache);
+    }
+
+    public void providePackagingCache(Provider<Boolean> packagingCache) {
+        packagingCacheProperty.set(packagingCache);
+    }
+
+    private final DirectoryProperty packagingCacheDirProperty = getProject().getLayout().directoryProperty();
+
+    @Internal
+    public File getPackagingCacheDir() {
+        return packagingCacheDirProperty.getAsFile().getOrNull();
+    }
+
+    public void setPackagingCacheDir(File packagingCacheDir) {
+        packagingCacheDirProperty.set(packagingCacheDir);
+    }
+
+    public void providePackagingCacheDir(Provider<Directory> packagingCacheDir) {
+        packagingCacheDirProperty.set(packagingCacheDir);
+    }
+
+    private final Property<Long> packagingCacheMaxSizeProperty = getProject().getObjects().property(Long.class);
+
+    @Internal
+    public long getPackagingCacheMaxSize() {
+        return packagingCacheMaxSizeProperty.getOrElse(IntershopExtension.PACKAGINGCACHE_MAXSIZE);
+    }
+
+    public void setPackagingCacheMaxSize(long packagingCacheMaxSize) {
+        packagingCacheMaxSizeProperty.set(packagingCacheMaxSize);
+    }
+
+    public void providePackagingCacheMaxSize(Provider<Long> packagingCacheMaxSize) {
+        packagingCacheMaxSizeProperty.set(packagingCacheMaxSize);
+    }
+
+    private final DirectoryProperty sharedEntryCacheDirProperty = getProject().getLayout().directoryProperty();
+
+    /**
+     * Compressed entries are shared with the other packages of
+     * a package matrix in this directory, if the packaging cache
+     * is not used. Files with the same content are compressed
+     * only once for all packages of the matrix.
+     *
+     * @return the directory of the shared entries or null
+     */
+    @Internal
+    public File getSharedEntryCacheDir() {
+        return sharedEntryCacheDirProperty.getAsFile().getOrNull();
+    }
+
+    public void setSharedEntryCacheDir(File sharedEntryCacheDir) {
+        sharedEntryCacheDirProperty.set(sharedEntryCacheDir);
+    }
+
+    public void provideSharedEntryCacheDir(Provider<Directory> sharedEntryCacheDir) {
+        sharedEntryCacheDirProperty.set(sharedEntryCacheDir);
+    }
+
+    private final Property<Boolean> parallelPackagingProperty = getProject().getObjects().property(Boolean.class);
+
+    /**
+     * The archive is created by a worker of the Gradle
+     * worker API, if parallel packaging is enabled.
+     *
+     * @return true if parallel packaging is enabled
+     */
+    @Internal
+    public boolean isParallelPackaging() {
+        return parallelPackagingProperty.getOrElse(false);
+    }
+
+    public void setParallelPackaging(boolean parallelPackaging) {
+        parallelPackagingProperty.set(parallelPackaging);
+    }
+
+    public void provideParallelPackaging(Provider<Boolean> parallelPackaging) {
+        parallelPackagingProperty.set(parallelPackaging);
+    }
+
+    private int excludedStaticLibCount = 0;
+
+    /**
+     * Number of static libs, that were excluded from
+     * the archive in the last execution of this task.
+     *
+     * @return number of excluded entries
+     */
+    @Internal
+    public int getExcludedStaticLibCount() {
+        return excludedStaticLibCount;
+    }
+
+    private final Property<Boolean> incrementalPackagingProperty = getProject().getObjects().property(Boolean.class);
+
+    /**
+     * An existing archive is updated with changed, added and
+     * removed files, if incremental packaging is enabled.
+     * The result is the same as a complete rebuild.
+     *
+     * @return true if incremental packaging is enabled
+     */
+    @Internal
+    public boolean isIncrementalPackaging() {
+        return incrementalPackagingProperty.getOrElse(false);
+    }
+
+    public void setIncrementalPackaging(boolean incrementalPackaging) {
+        incrementalPackagingProperty.set(incrementalPackaging);
+    }
+
+    public void provideIncrementalPackaging(Provider<Boolean> incrementalPackaging) {
+        incrementalPackagingProperty.set(incrementalPackaging);
+    }
+
+    private final RegularFileProperty metricsFileProperty = getProject().getLayout().fileProperty();
+
+    /**
+     * JSON report with the metrics of the last creation of
+     * the package. It is removed, if the package is taken
+     * from the build cache.
+     *
+     * @return the metrics report
+     */
+    @LocalState
+    public File getMetricsFile() {
+        return metricsFileProperty.get().getAsFile();
+    }
+
+    public void setMetricsFile(File metricsFile) {
+        metricsFileProperty.set(metricsFile);
+    }
+
+    public void provideMetricsFile(Provider<RegularFile> metricsFile) {
+        metricsFileProperty.set(metricsFile);
+    }
+
+    private final RegularFileProperty publishedArchiveFileProperty = getProject().getLayout().fileProperty();
+
+    /**
+     * Archive file of this package in the publications. The
+     * publications use the name and the directory of the package
+     * configuration, the task fails if the archive file of the
+     * task was changed, eg. with the destination directory.
+     *
+     * @return the published archive or null, if the package is not published
+     */
+    @Internal
+    public File getPublishedArchiveFile() {
+        return publishedArchiveFileProperty.isPresent() ? publishedArchiveFileProperty.get().getAsFile() : null;
+    }
+
+    public void setPublishedArchiveFile(File publishedArchiveFile) {
+        publishedArchiveFileProperty.set(publishedArchiveFile);
+    }
+
     @TaskAction
-    public void action() {
+    public void action(IncrementalTaskInputs inputs) {
+        File archiveFile = getArchiveFile().get().getAsFile();
+        File publishedArchiveFile = getPublishedArchiveFile();
+        if(publishedArchiveFile != null && ! publishedArchiveFile.getAbsoluteFile().equals(archiveFile.getAbsoluteFile())) {
+            throw new InvalidUserDataException(String.format(
+                    "The archive %s of task %s is not the published artifact %s. " +
+                    "Name and directory of a package can not be changed on the task.",
+                    archiveFile, getPath(), publishedArchiveFile));
+        }
 
-        // default configuration for component zip
-        setIncludeEmptyDirs(true);
-        setDuplicatesStrategy(DuplicatesStrategy.FAIL);
+        final PackagingMetrics metrics = new PackagingMetrics(getArtifactAppendix());
+        metrics.start();
 
-        // only three digits are configured (mask is 0000)
-        setFileMode(640);
-        setDirMode(750);
+        // the copy spec of the zip task is only used for the source
+        // of the task, the archive is written directly from the spec
+        final ComponentArchiveSpec spec = createArchiveSpec(metrics);
 
-        // remove static libs from zip
-        if(! getStaticLibs().isEmpty()) {
-            eachFile(fileCopyDetails -> {
-                if(getStaticLibs().contains(fileCopyDetails.getFile())) {
-                    fileCopyDetails.exclude();
-                }
+        if(isIncrementalPackaging() && inputs.isIncremental() && spec.getArchiveFile().isFile()) {
+            // removed files are not part of the spec anymore
+            inputs.outOfDate(details -> spec.addChangedFile(details.getFile()));
+            spec.setPreviousArchive(spec.getArchiveFile());
+        }
+
+        metrics.stop();
+        spec.setMetrics(metrics, getMetricsFile(), getPath());
+
+        if(isParallelPackaging()) {
+            workerExecutor.submit(ZipComponentWorker.class, config -> {
+                config.setIsolationMode(IsolationMode.NONE);
+                config.setDisplayName("Create component archive " + spec.getArchiveFile().getName());
+                config.params(spec);
             });
+        } else {
+            new ZipComponentWorker(spec).run();
+        }
+
+        setDidWork(true);
+    }
+
+    /**
+     * The archive is created by the task action of this task,
+     * the copy action of the zip task must not be executed.
+     */
+    @Override
+    protected void copy() {
+    }
+
+    /**
+     * Resolves all entries of the component archive. Empty directories
+     * are included, static libs are removed and duplicate files fail.
+     * The settings for reproducible archives of the zip task are used
+     * for the order and the timestamps of the entries.
+     *
+     * @param metrics metrics of the package for the static lib exclusion
+     * @return the specification of the archive
+     */
+    private ComponentArchiveSpec createArchiveSpec(final PackagingMetrics metrics) {
+        final ComponentArchiveSpec spec = createArchiveSettings();
+        excludedStaticLibCount = addEntries(spec, getInputFiles(), getStaticLibs(), getReleaseDirName(), metrics);
+
+        if(isReproducibleFileOrder()) {
+            spec.sortEntries();
         }
 
-        into(getReleaseDirName());
+        metrics.setExcludedStaticLibs(excludedStaticLibCount);
+        getLogger().info("{} static lib(s) excluded from component archive {}", excludedStaticLibCount, spec.getArchiveFile().getName());
+        return spec;
+    }
 
-        // call super action ...
-        copy();
+    /**
+     * Creates the specification of the archive with the settings
+     * of this task, but without entries. The settings are also
+     * used by the watch mode.
+     *
+     * @return the specification without entries
+     */
+    ComponentArchiveSpec createArchiveSettings() {
+        final ComponentArchiveSpec spec = new ComponentArchiveSpec(getArchiveFile().get().getAsFile(), FILE_MODE, DIR_MODE);
+        spec.setCompressionLevel(getCompressionLevel());
+        spec.setStoreOnly(isStoreOnly());
+        spec.setStorePatterns(getStorePatterns());
+        spec.setParallelDeflateThreshold(getParallelDeflateThreshold());
+        if(! isPreserveFileTimestamps()) {
+            spec.setEntryTime(CONSTANT_TIME_FOR_ZIP_ENTRIES);
+        }
+        if(isPackagingCache() && getPackagingCacheDir() != null) {
+            spec.setEntryCacheDir(getPackagingCacheDir());
+            spec.setEntryCacheMaxSize(getPackagingCacheMaxSize());
+        } else if(getSharedEntryCacheDir() != null) {
+            spec.setEntryCacheDir(getSharedEntryCacheDir());
+            spec.setEntryCacheMaxSize(getPackagingCacheMaxSize());
+        }
+        return spec;
     }
 
+    /**
+     * Adds the entries of all input files with the release dir as prefix to
+     * the specification. Empty directories are included, static libs are
+     * removed and duplicate files fail. The entries are also used for the
+     * exploded directory of a package and by the packaging benchmark.
+     *
+     * @param spec              the specification of the archive
+     * @param inputFiles        sources of the package
+     * @param staticLibs        static libs of the cartridge
+     * @param releaseDirName    root directory of the entries or an empty string
+     * @param metrics           metrics of the package for the static lib exclusion
+     * @return number of excluded static libs
+     */
+    public static int addEntries(final ComponentArchiveSpec spec, FileCollection inputFiles, FileCollection staticLibs,
+                                 String releaseDirName, final PackagingMetrics metrics) {
+        // static libs are resolved only once for all entries
+        long staticLibStart = System.nanoTime();
+        final StaticLibIndex staticLibIndex = new StaticLibIndex(staticLibs.getFiles());
+        metrics.addStaticLibExclusionTime(System.nanoTime() - staticLibStart);
+        final String prefix = releaseDirName.isEmpty() ? "" : releaseDirName + "/";
+
+        final Set<String> dirPaths = new HashSet<>();
+        final Set<String> filePaths = new HashSet<>();
+        final int[] excludedStaticLibs = { 0 };
+
+        inputFiles.getAsFileTree().visit(new FileVisitor() {
+            @Override
+            public void visitDir(FileVisitDetails dirDetails) {
+                String path = prefix + dirDetails.getRelativePath().getPathString();
+                if(dirPaths.add(path)) {
+                    spec.addDirectory(path, dirDetails.getFile());
+                }
+            }
+
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                // remove static libs from zip
+                long start = System.nanoTime();
+                boolean staticLib = staticLibIndex.contains(fileDetails.getFile());
+                metrics.addStaticLibExclusionTime(System.nanoTime() - start);
+                if(staticLib) {
+                    excludedStaticLibs[0]++;
+                    return;
+                }
+                String path = prefix + fileDetails.getRelativePath().getPathString();
+                if(! filePaths.add(path)) {
+                    throw new DuplicateFileCopyingException(String.format(
+                            "Encountered duplicate path \"%s\" during copy operation configured with DuplicatesStrategy.FAIL", path));
+                }
+                spec.addFile(path, fileDetails.getFile());
+            }
+        });
+        return excludedStaticLibs[0];
+    }
 
 }
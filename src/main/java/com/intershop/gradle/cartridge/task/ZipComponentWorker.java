@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.task;
+
+import com.intershop.gradle.cartridge.archive.ComponentArchiveSpec;
+import com.intershop.gradle.cartridge.archive.ComponentArchiveWriter;
+import com.intershop.gradle.cartridge.util.PackagingMetrics;
+import org.gradle.api.UncheckedIOException;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Worker for the creation of a component archive.
+ * It is used by ZipComponent for parallel packaging
+ * and writes the metrics report of the package.
+ */
+public class ZipComponentWorker implements Runnable {
+
+    private final ComponentArchiveSpec spec;
+
+    @Inject
+    public ZipComponentWorker(ComponentArchiveSpec spec) {
+        this.spec = spec;
+    }
+
+    @Override
+    public void run() {
+        PackagingMetrics metrics = spec.getMetrics();
+        if(metrics != null) {
+            metrics.start();
+        }
+
+        ComponentArchiveWriter writer = new ComponentArchiveWriter();
+        try {
+            writer.write(spec);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Component archive " + spec.getArchiveFile() + " was not created.", ex);
+        }
+
+        if(metrics != null) {
+            metrics.stop();
+            metrics.setFileCount(writer.getFileCount());
+            metrics.setBytesRead(writer.getBytesRead());
+            metrics.setBytesWritten(spec.getArchiveFile().length());
+            PackagingMetrics.writeReport(spec.getMetricsFile(), spec.getMetricsTaskPath(), metrics, Collections.singletonList(metrics));
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.util;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checksums of published artifacts. The checksums are calculated
+ * for local files and read from the checksum files of artifacts
+ * in the target repository.
+ */
+public final class ArtifactChecksums {
+
+    private static final Logger LOGGER = Logging.getLogger(ArtifactChecksums.class);
+
+    public final static String SHA1_EXTENSION = ".sha1";
+
+    private static final String SNAPSHOT_SUFFIX = "-SNAPSHOT";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int TIMEOUT = 30000;
+
+    private static final Pattern OPTIONAL_PART = Pattern.compile("\\(([^)]*)\\)");
+    private static final Pattern TOKEN = Pattern.compile("\\[([^]]+)]");
+
+    private ArtifactChecksums() {
+    }
+
+    /**
+     * Calculates the SHA-1 checksum of a file.
+     *
+     * @param file  a local file
+     * @return lower case hex string of the checksum
+     */
+    public static String sha1(File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return toHex(digest.digest());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("The checksum of " + file + " can not be calculated.", ex);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-1 is not available.", ex);
+        }
+    }
+
+    /**
+     * Reads the SHA-1 checksum of an artifact from a repository.
+     * Only file and http(s) repositories are supported, the checksum
+     * file is read without credentials.
+     *
+     * @param repositoryUrl URL of the repository
+     * @param artifactPath  path of the artifact in the repository
+     * @return the checksum or null, if it is not available
+     */
+    public static String readRemoteSha1(URI repositoryUrl, String artifactPath) {
+        if(repositoryUrl == null || repositoryUrl.getScheme() == null || artifactPath == null) {
+            return null;
+        }
+        String base = repositoryUrl.toString();
+        URI checksumUri = URI.create((base.endsWith("/") ? base : base + "/") + artifactPath + SHA1_EXTENSION);
+        String scheme = checksumUri.getScheme().toLowerCase();
+
+        try {
+            String content;
+            if("file".equals(scheme)) {
+                File checksumFile = new File(checksumUri);
+                if(! checksumFile.isFile()) {
+                    return null;
+                }
+                content = new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.UTF_8);
+            } else if("http".equals(scheme) || "https".equals(scheme)) {
+                content = readUrl(checksumUri);
+            } else {
+                LOGGER.info("Checksums of repositories with scheme '{}' are not supported.", scheme);
+                return null;
+            }
+            return parseChecksum(content);
+        } catch (IOException ex) {
+            LOGGER.info("Checksum {} is not available: {}", checksumUri, ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Compares two checksums. Leading zeros are ignored,
+     * because they are not written by all publishers.
+     *
+     * @return true, if both checksums are available and the same
+     */
+    public static boolean isSame(String checksum, String otherChecksum) {
+        if(checksum == null || otherChecksum == null) {
+            return false;
+        }
+        return stripLeadingZeros(checksum).equalsIgnoreCase(stripLeadingZeros(otherChecksum));
+    }
+
+    /**
+     * Each upload of a Maven SNAPSHOT version gets new file names with
+     * the timestamp of the upload and new metadata, that references only
+     * the files of this upload. The artifacts of a SNAPSHOT version must
+     * be published completely.
+     *
+     * @param version version of the publication
+     * @return true, if the version is a Maven SNAPSHOT version
+     */
+    public static boolean isSnapshot(String version) {
+        return version != null && version.endsWith(SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Path of an artifact in a Maven repository.
+     *
+     * @return relative path of the artifact
+     */
+    public static String getMavenPath(String groupId, String artifactId, String version, String classifier, String extension) {
+        StringBuilder path = new StringBuilder();
+        path.append(groupId.replace('.', '/')).append('/').append(artifactId).append('/').append(version).append('/');
+        path.append(artifactId).append('-').append(version);
+        if(classifier != null && ! classifier.isEmpty()) {
+            path.append('-').append(classifier);
+        }
+        if(extension != null && ! extension.isEmpty()) {
+            path.append('.').append(extension);
+        }
+        return path.toString();
+    }
+
+    /**
+     * Path of an artifact in an Ivy repository with an artifact pattern.
+     * Optional parts of the pattern are removed, if a token of the part
+     * has no value.
+     *
+     * @return relative path of the artifact or null, if a required token has no value
+     */
+    public static String getIvyPath(String pattern, String organisation, String module, String revision,
+                                    String artifact, String type, String classifier, String extension) {
+        Matcher optionalMatcher = OPTIONAL_PART.matcher(pattern);
+        StringBuffer resolved = new StringBuffer();
+        while(optionalMatcher.find()) {
+            String part = replaceTokens(optionalMatcher.group(1), organisation, module, revision, artifact, type, classifier, extension);
+            optionalMatcher.appendReplacement(resolved, Matcher.quoteReplacement(part == null ? "" : part));
+        }
+        optionalMatcher.appendTail(resolved);
+
+        return replaceTokens(resolved.toString(), organisation, module, revision, artifact, type, classifier, extension);
+    }
+
+    /**
+     * Replaces all tokens of a pattern.
+     *
+     * @return the path or null, if a token has no value
+     */
+    private static String replaceTokens(String pattern, String organisation, String module, String revision,
+                                        String artifact, String type, String classifier, String extension) {
+        Matcher tokenMatcher = TOKEN.matcher(pattern);
+        StringBuffer resolved = new StringBuffer();
+        while(tokenMatcher.find()) {
+            String value;
+            switch(tokenMatcher.group(1)) {
+                case "organisation":
+                case "organization": value = organisation; break;
+                case "module":       value = module; break;
+                case "revision":     value = revision; break;
+                case "artifact":     value = artifact; break;
+                case "type":         value = type; break;
+                case "classifier":   value = classifier; break;
+                case "ext":          value = extension; break;
+                default:             value = null;
+            }
+            if(value == null || value.isEmpty()) {
+                return null;
+            }
+            tokenMatcher.appendReplacement(resolved, Matcher.quoteReplacement(value));
+        }
+        tokenMatcher.appendTail(resolved);
+        return resolved.toString();
+    }
+
+    private static String readUrl(URI uri) throws IOException {
+        URLConnection connection = uri.toURL().openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        if(connection instanceof HttpURLConnection) {
+            int status = ((HttpURLConnection) connection).getResponseCode();
+            if(status != HttpURLConnection.HTTP_OK) {
+                throw new FileNotFoundException("HTTP status " + status);
+            }
+        }
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[128];
+            int length = 0;
+            int read;
+            while(length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += read;
+            }
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Checksum files contain the checksum, optionally followed
+     * by the file name.
+     */
+    private static String parseChecksum(String content) {
+        String checksum = content.trim();
+        int separator = checksum.indexOf(' ');
+        if(separator > 0) {
+            checksum = checksum.substring(0, separator);
+        }
+        return checksum.isEmpty() ? null : checksum.toLowerCase();
+    }
+
+    private static String stripLeadingZeros(String checksum) {
+        int start = 0;
+        while(start < checksum.length() - 1 && checksum.charAt(start) == '0') {
+            start++;
+        }
+        return checksum.substring(start);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.util;
+
+import com.intershop.gradle.cartridge.extension.PackageContainer;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validates the package configuration of a single cartridge.
+ * The validator uses only files and directories, that are
+ * resolved from the configured collections before, see
+ * {@link SourceFileIndex#resolveRoots}. Validators of different
+ * cartridges can be used at the same time on other threads.
+ */
+public class CartridgeValidator {
+
+    private static final Logger LOGGER = Logging.getLogger(CartridgeValidator.class);
+
+    public final static String STATUS_OK = "OK";
+    public final static String STATUS_WARNING = "WARNING";
+    public final static String STATUS_ERROR = "ERROR";
+
+    private static final String SEPARATOR_LINE = "-----------------------------------------------------------------------------";
+
+    private final String cartridgeName;
+
+    private Set<File> localFiles = Collections.emptySet();
+    private Set<File> shareFiles = Collections.emptySet();
+    private Set<File> cartridgeFiles = Collections.emptySet();
+    private Set<File> staticLibs = Collections.emptySet();
+
+    private final List<String> packageTypes = new ArrayList<>();
+    private final List<Set<File>> packageSources = new ArrayList<>();
+
+    public CartridgeValidator(String cartridgeName) {
+        this.cartridgeName = cartridgeName;
+    }
+
+    public void setLocalFiles(Set<File> localFiles) {
+        this.localFiles = localFiles;
+    }
+
+    public void setShareFiles(Set<File> shareFiles) {
+        this.shareFiles = shareFiles;
+    }
+
+    public void setCartridgeFiles(Set<File> cartridgeFiles) {
+        this.cartridgeFiles = cartridgeFiles;
+    }
+
+    public void setStaticLibs(Set<File> staticLibs) {
+        this.staticLibs = staticLibs;
+    }
+
+    /**
+     * Adds a configured package to the validation.
+     *
+     * @param type      type of the package, eg. 'share'
+     * @param sources   resolved roots of the sources of the package
+     */
+    public void addPackage(String type, Set<File> sources) {
+        packageTypes.add(type);
+        packageSources.add(sources);
+    }
+
+    /**
+     * Validates the packages of the cartridge. All
+     * directories are scanned only once.
+     *
+     * @return the result of the validation
+     */
+    public Result validate() {
+        SourceFileIndex index = new SourceFileIndex();
+        StaticLibIndex staticLibIndex = new StaticLibIndex(staticLibs);
+
+        Result result = new Result(cartridgeName);
+
+        // calculate data for local files
+        int localFilesSize = index.getFiles(localFiles).getCount();
+        int localConfiguredPkgSize = countPackages(result, index, staticLibIndex, PackageContainer.LOCAL_NAME, false);
+        int localValidPkgSize = countPackages(result, index, staticLibIndex, PackageContainer.LOCAL_NAME, true);
+        result.addType(PackageContainer.LOCAL_NAME, localFilesSize, localConfiguredPkgSize, localValidPkgSize);
+
+        // calculate share for local files
+        int shareFilesSize = index.getFiles(shareFiles).getCount();
+        int shareConfiguredPkgSize = countPackages(result, index, staticLibIndex, PackageContainer.SHARE_NAME, false);
+        int shareValidPkgSize = countPackages(result, index, staticLibIndex, PackageContainer.SHARE_NAME, true);
+        result.addType(PackageContainer.SHARE_NAME, shareFilesSize, shareConfiguredPkgSize, shareValidPkgSize);
+
+        // calculate data for cartridge files
+        int cartridgeFilesSize = index.getFiles(cartridgeFiles).without(staticLibIndex).getCount();
+        int cartridgeConfiguredPkgSize = countPackages(result, index, staticLibIndex, PackageContainer.CARTRIDGE_NAME, false);
+        int cartridgeValidPkgSize = countPackages(result, index, staticLibIndex, PackageContainer.CARTRIDGE_NAME, true);
+        result.addType(PackageContainer.CARTRIDGE_NAME, cartridgeFilesSize, cartridgeConfiguredPkgSize, cartridgeValidPkgSize);
+
+        if(localFilesSize > 0 && localConfiguredPkgSize == 0) {
+            // There are local files, but no configured local package -> warning
+            result.addWarning("There are " + localFilesSize + " local file(s) and no local package.",
+                    "Add configuration 'local' to Intershop extension.");
+        } else  if(localValidPkgSize < localConfiguredPkgSize) {
+            // There are configured local packages, but the package will be empty -> error
+            result.addError("Local package is empty!",
+                    "Remove configuration 'local' from Intershop extension.");
+        }
+
+        if(shareFilesSize > 0 && shareConfiguredPkgSize == 0) {
+            // There are share files, but no configured share package -> warning
+            result.addWarning("There are " + shareFilesSize + " share file(s) and no share package.",
+                    "Add configuration 'share' to Intershop extension.");
+        } else if(shareValidPkgSize < shareConfiguredPkgSize) {
+            // There are configured share packages, but the package will be empty -> error
+            result.addError("Share package is empty!",
+                    "Remove configuration 'share' from Intershop extension.");
+        }
+
+        if(cartridgeFilesSize > 0 && cartridgeConfiguredPkgSize == 0) {
+            // There are cartridge files, but no configured cartridge package -> warning
+            result.addWarning("There are " + cartridgeFilesSize + " cartridge file(s) and no cartridge package.",
+                    "Add configuration 'cartridge' to Intershop extension.");
+        } else if(cartridgeValidPkgSize < cartridgeConfiguredPkgSize) {
+            // There are configured cartridge packages, but the package will be empty -> error
+            result.addError("Cartridge package is empty!",
+                    "Remove configuration 'cartridge' from Intershop extension.");
+        }
+
+        return result;
+    }
+
+    private int countPackages(Result result, SourceFileIndex index, StaticLibIndex staticLibIndex, String type, boolean withFilesOnly) {
+        int count = 0;
+        for(int i = 0; i < packageTypes.size(); i++) {
+            if(packageTypes.get(i).equals(type)) {
+                if(! withFilesOnly) {
+                    count++;
+                    continue;
+                }
+
+                PackagingMetrics metrics = new PackagingMetrics(type);
+                metrics.start();
+
+                SourceFileIndex.IndexedFiles files = index.getFiles(packageSources.get(i));
+                if(PackageContainer.CARTRIDGE_NAME.equals(type)) {
+                    long start = System.nanoTime();
+                    int fileCount = files.getCount();
+                    files = files.without(staticLibIndex);
+                    metrics.addStaticLibExclusionTime(System.nanoTime() - start);
+                    metrics.setExcludedStaticLibs(fileCount - files.getCount());
+                }
+
+                metrics.stop();
+                metrics.setFileCount(files.getCount());
+                metrics.setBytesRead(files.getSize());
+                result.packageMetrics.add(metrics);
+
+                LOGGER.info("Package of type '{}' of cartridge '{}' contains {} file(s) with {} bytes.",
+                        type, cartridgeName, files.getCount(), files.getSize());
+                if(! files.isEmpty()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Result of the validation of a cartridge.
+     */
+    public static class Result {
+
+        private final String cartridgeName;
+        private final Map<String, Object> types = new LinkedHashMap<>();
+
+        private final List<String> warnings = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private final List<PackagingMetrics> packageMetrics = new ArrayList<>();
+
+        private final StringBuilder warnDetails = new StringBuilder();
+        private final StringBuilder errorDetails = new StringBuilder();
+
+        Result(String cartridgeName) {
+            this.cartridgeName = cartridgeName;
+        }
+
+        private void addType(String type, int files, int configuredPackages, int validPackages) {
+            Map<String, Object> typeReport = new LinkedHashMap<>();
+            typeReport.put("files", files);
+            typeReport.put("configuredPackages", configuredPackages);
+            typeReport.put("validPackages", validPackages);
+            types.put(type, typeReport);
+        }
+
+        private void addWarning(String message, String hint) {
+            warnings.add(message);
+            warnDetails.append("   ").append(message).append("\n");
+            warnDetails.append("   -> ").append(hint).append("\n");
+        }
+
+        private void addError(String message, String hint) {
+            errors.add(message);
+            errorDetails.append("   ").append(message).append("\n");
+            errorDetails.append("   -> ").append(hint).append("\n");
+        }
+
+        public String getCartridgeName() {
+            return cartridgeName;
+        }
+
+        public String getStatus() {
+            if(hasErrors()) {
+                return STATUS_ERROR;
+            }
+            return hasWarnings() ? STATUS_WARNING : STATUS_OK;
+        }
+
+        public boolean hasWarnings() {
+            return ! warnings.isEmpty();
+        }
+
+        public boolean hasErrors() {
+            return ! errors.isEmpty();
+        }
+
+        public List<String> getWarnings() {
+            return Collections.unmodifiableList(warnings);
+        }
+
+        public List<String> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        /**
+         * Metrics of the resolution of the package sources.
+         *
+         * @return metrics of all configured packages
+         */
+        public List<PackagingMetrics> getPackageMetrics() {
+            return Collections.unmodifiableList(packageMetrics);
+        }
+
+        /**
+         * Formatted message with all warnings.
+         *
+         * @return message for the console
+         */
+        public String getWarningMessage() {
+            return "\n" + getHeader() + "' configuration - WARNING" + "\n" +
+                    "The cartridge '" + cartridgeName + "' contains files, but there are no configured packages." + "\n\n" +
+                    warnDetails + SEPARATOR_LINE;
+        }
+
+        /**
+         * Formatted message with all errors.
+         *
+         * @return message for the console
+         */
+        public String getErrorMessage() {
+            return "\n" + getHeader() + "' configuration - ERRORS" + "\n" +
+                    "There are configured packages, but without source files." + "\n\n" +
+                    errorDetails + SEPARATOR_LINE;
+        }
+
+        /**
+         * Data of the result for a JSON report.
+         *
+         * @return map with status, data of package types and messages
+         */
+        public Map<String, Object> toReport() {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("cartridge", cartridgeName);
+            report.put("status", getStatus());
+            report.put("packages", types);
+            report.put("warnings", warnings);
+            report.put("errors", errors);
+            return report;
+        }
+
+        private String getHeader() {
+            return SEPARATOR_LINE + "\n" + "Intershop Cartridge '" + cartridgeName;
+        }
+    }
+}
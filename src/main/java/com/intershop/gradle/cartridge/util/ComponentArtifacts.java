@@ -0,0 +1,214 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.util;
+
+import com.intershop.gradle.cartridge.extension.ComponentPackage;
+import com.intershop.gradle.cartridge.extension.IntershopExtension;
+import com.intershop.gradle.cartridge.task.ZipComponent;
+import org.gradle.api.Project;
+import org.gradle.util.GUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Artifacts of a component, that are published by the Maven
+ * and the Ivy publication. The packages, static libs and the
+ * deployment file are resolved only once, when the artifacts
+ * are used by the first publication.
+ */
+public class ComponentArtifacts {
+
+    private final Project project;
+    private final IntershopExtension extension;
+
+    private List<PackageArtifact> packages = null;
+    private List<FileArtifact> staticLibs = null;
+    private FileArtifact deploymentFile = null;
+
+    public ComponentArtifacts(Project project, IntershopExtension extension) {
+        this.project = project;
+        this.extension = extension;
+    }
+
+    /**
+     * Packages of the component. The zip tasks are not
+     * created for the resolution of the packages.
+     *
+     * @return list of package artifacts
+     */
+    public List<PackageArtifact> getPackages() {
+        resolve();
+        return packages;
+    }
+
+    /**
+     * Static libraries of the component.
+     *
+     * @return list of static lib artifacts
+     */
+    public List<FileArtifact> getStaticLibs() {
+        resolve();
+        return staticLibs;
+    }
+
+    /**
+     * Deployment file of the component.
+     *
+     * @return the deployment file artifact or null, if the file does not exist
+     */
+    public FileArtifact getDeploymentFile() {
+        resolve();
+        return deploymentFile;
+    }
+
+    private void resolve() {
+        if(packages != null) {
+            return;
+        }
+
+        String version = GUtil.isTrue(project.getVersion()) ? project.getVersion().toString() : "";
+        List<PackageArtifact> resolvedPackages = new ArrayList<>();
+        for(ComponentPackage pkg : extension.getPackages().getPackageContainer()) {
+            resolvedPackages.add(new PackageArtifact(project, pkg, version));
+        }
+
+        List<FileArtifact> resolvedStaticLibs = new ArrayList<>();
+        for(File file : extension.getStaticLibs().getFiles()) {
+            resolvedStaticLibs.add(new FileArtifact(file));
+        }
+
+        File file = extension.getDeploymentFileProvider().get().getAsFile();
+        deploymentFile = file.isFile() ? new FileArtifact(file) : null;
+        staticLibs = Collections.unmodifiableList(resolvedStaticLibs);
+        packages = Collections.unmodifiableList(resolvedPackages);
+    }
+
+    private static String getFileNamewithoutExtension(String filename) {
+        int extensionIndex = filename.lastIndexOf(".");
+        if(extensionIndex == -1)
+            return filename;
+
+        return filename.substring(0, extensionIndex);
+    }
+
+    /**
+     * A file artifact, eg. a static lib.
+     */
+    public static class FileArtifact {
+
+        private final File file;
+        private final String name;
+
+        FileArtifact(File file) {
+            this.file = file;
+            this.name = getFileNamewithoutExtension(file.getName());
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Name of the file without extension.
+         *
+         * @return name of the artifact
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * A package of the component.
+     */
+    public static class PackageArtifact {
+
+        private final File file;
+        private final String taskName;
+        private final String baseName;
+        private final String type;
+        private final String osExtension;
+
+        PackageArtifact(Project project, ComponentPackage pkg, String version) {
+            this.taskName = pkg.getTaskName();
+            this.baseName = pkg.getBaseName();
+            this.type = pkg.getNameExtension();
+            this.osExtension = pkg.getOsExtension();
+
+            String destinationPath = ZipComponent.getDestinationPath(type, osExtension);
+            String archiveName = ZipComponent.getArchiveName(baseName, type, version, osExtension);
+            this.file = project.getLayout().getBuildDirectory().dir(destinationPath).get().file(archiveName).getAsFile();
+        }
+
+        /**
+         * Archive file of the package. It is calculated
+         * without the creation of the zip task.
+         *
+         * @return the archive file
+         */
+        public File getFile() {
+            return file;
+        }
+
+        public String getTaskName() {
+            return taskName;
+        }
+
+        public String getBaseName() {
+            return baseName;
+        }
+
+        /**
+         * Type of the package, eg. 'share'.
+         *
+         * @return name extension of the package
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * OS specific extension of the package.
+         *
+         * @return the OS extension or an empty string
+         */
+        public String getOsExtension() {
+            return osExtension;
+        }
+
+        /**
+         * Classifier of the Maven artifact, an empty
+         * string for a classifier is not allowed.
+         *
+         * @return type and OS extension of the package
+         */
+        public String getMavenClassifier() {
+            return osExtension.isEmpty() ? type : type + "_" + osExtension;
+        }
+
+        /**
+         * Classifier of the Ivy artifact.
+         *
+         * @return the OS extension or null
+         */
+        public String getIvyClassifier() {
+            return osExtension.isEmpty() ? null : osExtension;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.util;
+
+import org.gradle.api.GradleException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Adds the cartridge properties to a publication descriptor in a
+ * single streaming pass. The descriptor is read with StAX and written
+ * directly, no DOM is created. Namespace declarations are written
+ * before the attributes and attributes are sorted by name, so the
+ * result is the same as the serialization of a DOM.
+ */
+public class DescriptorEnricher {
+
+    public final static String IVY_EXTRA_PREFIX = "e";
+    public final static String IVY_EXTRA_NAMESPACE = "http://ant.apache.org/ivy/extra";
+
+    private static final String INDENT = "  ";
+    private static final String NEW_LINE = "\n";
+
+    private final String containerName;
+    private final boolean createContainer;
+    private final Set<String> removedElements = new HashSet<>();
+    private final Map<String, String> addedElements = new LinkedHashMap<>();
+    private final Map<String, String> rootNamespaces = new LinkedHashMap<>();
+
+    private boolean containerFound = false;
+
+    /**
+     * @param containerName     name of the child element of the root, that gets the new elements
+     * @param createContainer   the container is added to the root, if it does not exist
+     */
+    public DescriptorEnricher(String containerName, boolean createContainer) {
+        this.containerName = containerName;
+        this.createContainer = createContainer;
+    }
+
+    /**
+     * Enricher for the properties of a Maven POM.
+     *
+     * @param displayName   display name of the cartridge
+     * @param description   description of the cartridge
+     * @return the configured enricher
+     */
+    public static DescriptorEnricher forPom(String displayName, String description) {
+        DescriptorEnricher enricher = new DescriptorEnricher("properties", true);
+        enricher.removeElement("cartridge-displayname");
+        enricher.removeElement("cartridge-description");
+        enricher.addElement("cartridge-displayname", displayName);
+        enricher.addElement("cartridge-description", description);
+        return enricher;
+    }
+
+    /**
+     * Enricher for the info element of an Ivy descriptor.
+     *
+     * @param displayName   display name of the cartridge
+     * @param description   description of the cartridge
+     * @return the configured enricher
+     */
+    public static DescriptorEnricher forIvy(String displayName, String description) {
+        DescriptorEnricher enricher = new DescriptorEnricher("info", false);
+        enricher.addRootNamespace(IVY_EXTRA_PREFIX, IVY_EXTRA_NAMESPACE);
+        if(description != null && ! description.isEmpty()) {
+            enricher.removeElement("description");
+            enricher.addElement("description", description);
+        }
+        if(displayName != null && ! displayName.isEmpty()) {
+            enricher.removeElement(IVY_EXTRA_PREFIX + ":displayName");
+            enricher.addElement(IVY_EXTRA_PREFIX + ":displayName", displayName);
+        }
+        return enricher;
+    }
+
+    /**
+     * Existing child elements of the container with
+     * this name are removed.
+     *
+     * @param name  qualified name of the element
+     */
+    public void removeElement(String name) {
+        removedElements.add(name);
+    }
+
+    /**
+     * Adds an element with text at the end of the container.
+     * Elements without text are not added.
+     *
+     * @param name  qualified name of the element
+     * @param text  text of the element
+     */
+    public void addElement(String name, String text) {
+        if(text != null && ! text.isEmpty()) {
+            addedElements.put(name, text);
+        }
+    }
+
+    /**
+     * Adds a namespace declaration to the root element,
+     * if the prefix is not declared.
+     *
+     * @param prefix    namespace prefix
+     * @param uri       namespace URI
+     */
+    public void addRootNamespace(String prefix, String uri) {
+        rootNamespaces.put(prefix, uri);
+    }
+
+    /**
+     * The container was found in the last transformed descriptor.
+     *
+     * @return true, if the container exists or was created
+     */
+    public boolean isContainerFound() {
+        return containerFound;
+    }
+
+    /**
+     * Transforms the descriptor.
+     *
+     * @param xml   content of the descriptor
+     * @return the transformed descriptor without XML declaration
+     */
+    public String transform(CharSequence xml) {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+        StringBuilder out = new StringBuilder(xml.length() + 256);
+        containerFound = false;
+
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(xml.toString()));
+            try {
+                new Pass(reader, out).run();
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException ex) {
+            throw new GradleException("The publication descriptor can not be processed: " + ex.getMessage(), ex);
+        }
+        return out.toString();
+    }
+
+    /**
+     * State of a single pass over a descriptor.
+     */
+    private class Pass {
+
+        private final XMLStreamReader reader;
+        private final StringBuilder out;
+
+        private int depth = 0;
+        private int skipDepth = -1;
+        private boolean inContainer = false;
+        private boolean startTagOpen = false;
+        private final StringBuilder whitespace = new StringBuilder();
+
+        private Pass(XMLStreamReader reader, StringBuilder out) {
+            this.reader = reader;
+            this.out = out;
+        }
+
+        private void run() throws XMLStreamException {
+            while(reader.hasNext()) {
+                int event = reader.next();
+
+                // content of removed elements is skipped
+                if(skipDepth >= 0) {
+                    if(event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                    } else if(event == XMLStreamConstants.END_ELEMENT && --depth == skipDepth) {
+                        skipDepth = -1;
+                    }
+                    continue;
+                }
+
+                switch(event) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        startElement();
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        endElement();
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.SPACE:
+                    case XMLStreamConstants.CDATA:
+                        characters();
+                        break;
+                    case XMLStreamConstants.COMMENT:
+                        flush();
+                        out.append("<!--").append(reader.getText()).append("-->");
+                        break;
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        flush();
+                        out.append("<?").append(reader.getPITarget());
+                        if(reader.getPIData() != null && ! reader.getPIData().isEmpty()) {
+                            out.append(' ').append(reader.getPIData());
+                        }
+                        out.append("?>");
+                        break;
+                    default:
+                        // document events and DTDs are not written
+                }
+            }
+        }
+
+        private void startElement() {
+            String name = getQualifiedName(reader.getPrefix(), reader.getLocalName());
+
+            if(inContainer && depth == 2 && removedElements.contains(name)) {
+                // the indentation of the removed element is removed too
+                closeStartTag();
+                whitespace.setLength(0);
+                skipDepth = depth;
+                depth++;
+                return;
+            }
+
+            flush();
+            out.append('<').append(name);
+
+            Map<String, String> namespaces = new TreeMap<>();
+            for(int i = 0; i < reader.getNamespaceCount(); i++) {
+                String prefix = reader.getNamespacePrefix(i);
+                namespaces.put(prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix, reader.getNamespaceURI(i));
+            }
+            if(depth == 0) {
+                for(Map.Entry<String, String> namespace : rootNamespaces.entrySet()) {
+                    if(reader.getNamespaceContext().getNamespaceURI(namespace.getKey()) == null
+                            || reader.getNamespaceContext().getNamespaceURI(namespace.getKey()).isEmpty()) {
+                        namespaces.put("xmlns:" + namespace.getKey(), namespace.getValue());
+                    }
+                }
+            }
+            writeAttributes(namespaces);
+
+            Map<String, String> attributes = new TreeMap<>();
+            for(int i = 0; i < reader.getAttributeCount(); i++) {
+                attributes.put(getQualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                        reader.getAttributeValue(i));
+            }
+            writeAttributes(attributes);
+
+            startTagOpen = true;
+            depth++;
+
+            if(depth == 2 && containerName.equals(name)) {
+                inContainer = true;
+                containerFound = true;
+            }
+        }
+
+        private void endElement() {
+            depth--;
+            String name = getQualifiedName(reader.getPrefix(), reader.getLocalName());
+
+            if(inContainer && depth == 1) {
+                inContainer = false;
+                if(! addedElements.isEmpty()) {
+                    closeStartTag();
+                    writeElements(addedElements, depth + 1);
+                    writeClosingIndent(depth);
+                }
+            } else if(depth == 0 && ! containerFound && createContainer && ! addedElements.isEmpty()) {
+                containerFound = true;
+                closeStartTag();
+                out.append(NEW_LINE).append(indent(1)).append('<').append(containerName).append('>');
+                writeElements(addedElements, 2);
+                out.append(NEW_LINE).append(indent(1)).append("</").append(containerName).append('>');
+                writeClosingIndent(depth);
+            }
+
+            if(startTagOpen && whitespace.length() == 0) {
+                out.append("/>");
+                startTagOpen = false;
+                return;
+            }
+            flush();
+            out.append("</").append(name).append('>');
+        }
+
+        private void characters() {
+            String text = reader.getText();
+            if(text.trim().isEmpty()) {
+                whitespace.append(text);
+                return;
+            }
+            flush();
+            escape(text, false);
+        }
+
+        /**
+         * Writes an open start tag and the pending whitespace.
+         */
+        private void flush() {
+            closeStartTag();
+            out.append(whitespace);
+            whitespace.setLength(0);
+        }
+
+        private void closeStartTag() {
+            if(startTagOpen) {
+                out.append('>');
+                startTagOpen = false;
+            }
+        }
+
+        private void writeClosingIndent(int level) {
+            if(whitespace.length() == 0) {
+                whitespace.append(NEW_LINE).append(indent(level));
+            }
+        }
+
+        private void writeElements(Map<String, String> elements, int level) {
+            for(Map.Entry<String, String> element : elements.entrySet()) {
+                out.append(NEW_LINE).append(indent(level));
+                out.append('<').append(element.getKey()).append('>');
+                escape(element.getValue(), false);
+                out.append("</").append(element.getKey()).append('>');
+            }
+        }
+
+        private void writeAttributes(Map<String, String> attributes) {
+            for(Map.Entry<String, String> attribute : attributes.entrySet()) {
+                out.append(' ').append(attribute.getKey()).append("=\"");
+                escape(attribute.getValue(), true);
+                out.append('"');
+            }
+        }
+
+        private void escape(String text, boolean attribute) {
+            for(int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch(c) {
+                    case '&':  out.append("&amp;"); break;
+                    case '<':  out.append("&lt;"); break;
+                    case '>':  out.append("&gt;"); break;
+                    case '"':  out.append(attribute ? "&quot;" : "\""); break;
+                    case '\n': out.append(attribute ? "&#10;" : "\n"); break;
+                    case '\r': out.append(attribute ? "&#13;" : "\r"); break;
+                    case '\t': out.append(attribute ? "&#9;" : "\t"); break;
+                    default:   out.append(c);
+                }
+            }
+        }
+    }
+
+    private static String getQualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    private static String indent(int level) {
+        StringBuilder indent = new StringBuilder();
+        for(int i = 0; i < level; i++) {
+            indent.append(INDENT);
+        }
+        return indent.toString();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.util;
+
+import groovy.json.JsonOutput;
+import org.gradle.api.UncheckedIOException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Writes machine readable reports of the plugin tasks.
+ */
+public class JsonReport {
+
+    private JsonReport() {
+    }
+
+    /**
+     * Writes the data as formatted JSON. An existing
+     * report will be replaced.
+     *
+     * @param reportFile    target file of the report
+     * @param data          maps, lists and simple values
+     */
+    public static void write(File reportFile, Object data) {
+        try {
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            Files.write(reportFile.toPath(), JsonOutput.prettyPrint(JsonOutput.toJson(data)).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Report " + reportFile + " was not written.", ex);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.util;
+
+import java.io.File;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of a single package. Wall and CPU time are
+ * measured between start and stop and summed up, so that
+ * different steps in different threads can be measured.
+ * CPU time is the time of the measuring thread only, eg.
+ * parallel compression on other threads is not included.
+ */
+public class PackagingMetrics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+
+    private int fileCount = 0;
+    private long bytesRead = 0;
+    private long bytesWritten = -1;
+
+    private long wallTime = 0;
+    private long cpuTime = 0;
+    private long staticLibExclusionTime = 0;
+    private int excludedStaticLibs = 0;
+
+    private transient long startWallTime = -1;
+    private transient long startCpuTime = -1;
+
+    /**
+     * @param name  name of the package, eg. 'share'
+     */
+    public PackagingMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Starts a measurement in the current thread.
+     */
+    public void start() {
+        startWallTime = System.nanoTime();
+        startCpuTime = getCurrentThreadCpuTime();
+    }
+
+    /**
+     * Stops the measurement in the current thread and
+     * adds the time to the metrics.
+     */
+    public void stop() {
+        if(startWallTime < 0) {
+            return;
+        }
+        wallTime += System.nanoTime() - startWallTime;
+        long endCpuTime = getCurrentThreadCpuTime();
+        if(startCpuTime >= 0 && endCpuTime >= 0) {
+            cpuTime += endCpuTime - startCpuTime;
+        }
+        startWallTime = -1;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public void setFileCount(int fileCount) {
+        this.fileCount = fileCount;
+    }
+
+    /**
+     * Size of all source files of the package.
+     *
+     * @return size in bytes
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public void setBytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    /**
+     * Size of the created package.
+     *
+     * @return size in bytes or -1, if nothing was written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public void setBytesWritten(long bytesWritten) {
+        this.bytesWritten = bytesWritten;
+    }
+
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    public long getStaticLibExclusionTime() {
+        return staticLibExclusionTime;
+    }
+
+    public void addStaticLibExclusionTime(long nanos) {
+        staticLibExclusionTime += nanos;
+    }
+
+    public int getExcludedStaticLibs() {
+        return excludedStaticLibs;
+    }
+
+    public void setExcludedStaticLibs(int excludedStaticLibs) {
+        this.excludedStaticLibs = excludedStaticLibs;
+    }
+
+    /**
+     * Adds the files and times of other metrics, eg. the
+     * packages of a cartridge. Written bytes are only added,
+     * if the other metrics contain written bytes.
+     *
+     * @param metrics   metrics of a part of these metrics
+     */
+    public void add(PackagingMetrics metrics) {
+        fileCount += metrics.fileCount;
+        bytesRead += metrics.bytesRead;
+        if(metrics.bytesWritten >= 0) {
+            bytesWritten = Math.max(bytesWritten, 0) + metrics.bytesWritten;
+        }
+        wallTime += metrics.wallTime;
+        cpuTime += metrics.cpuTime;
+        staticLibExclusionTime += metrics.staticLibExclusionTime;
+        excludedStaticLibs += metrics.excludedStaticLibs;
+    }
+
+    /**
+     * Data of the metrics for a JSON report,
+     * all times are in milliseconds.
+     *
+     * @return map with all values
+     */
+    public Map<String, Object> toReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("name", name);
+        report.put("fileCount", fileCount);
+        report.put("bytesRead", bytesRead);
+        if(bytesWritten >= 0) {
+            report.put("bytesWritten", bytesWritten);
+            report.put("compressionRatio", bytesRead > 0 ? (double) bytesWritten / bytesRead : 1.0);
+        }
+        report.put("wallTime", TimeUnit.NANOSECONDS.toMillis(wallTime));
+        report.put("cpuTime", TimeUnit.NANOSECONDS.toMillis(cpuTime));
+        report.put("staticLibExclusionTime", TimeUnit.NANOSECONDS.toMillis(staticLibExclusionTime));
+        report.put("excludedStaticLibs", excludedStaticLibs);
+        return report;
+    }
+
+    /**
+     * Writes the metrics of a task as JSON report.
+     *
+     * @param reportFile    target file of the report
+     * @param taskPath      path of the measured task
+     * @param taskMetrics   metrics with wall and CPU time of the task
+     * @param packages      metrics of all packages of the task
+     */
+    public static void writeReport(File reportFile, String taskPath, PackagingMetrics taskMetrics, List<PackagingMetrics> packages) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("task", taskPath);
+        report.put("wallTime", TimeUnit.NANOSECONDS.toMillis(taskMetrics.getWallTime()));
+        report.put("cpuTime", TimeUnit.NANOSECONDS.toMillis(taskMetrics.getCpuTime()));
+
+        List<Map<String, Object>> packageReports = new ArrayList<>();
+        for(PackagingMetrics metrics : packages) {
+            packageReports.add(metrics.toReport());
+        }
+        report.put("packages", packageReports);
+
+        JsonReport.write(reportFile, report);
+    }
+
+    /**
+     * CPU time of the current thread.
+     *
+     * @return time in nanoseconds or -1, if it is not supported
+     */
+    public static long getCurrentThreadCpuTime() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        return threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+    }
+}
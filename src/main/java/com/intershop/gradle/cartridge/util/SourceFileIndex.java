@@ -0,0 +1,332 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.util;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.ConfigurableFileTree;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.Provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * This class provides an in-memory index of the source
+ * files of a cartridge. Every directory is scanned only
+ * once, all collections of files below this directory,
+ * eg. the files of a package, are calculated from the index.
+ *
+ * File collections are resolved from their roots, if the
+ * roots are files, directories or file trees without patterns.
+ * Other collections are visited once as a file tree. The
+ * roots are resolved before the index is used, so that the
+ * index does not use the collections.
+ */
+public class SourceFileIndex {
+
+    private static final char SEPARATOR = File.separatorChar;
+
+    // absolute path of all indexed files with size
+    private final NavigableMap<String, Long> files = new TreeMap<>();
+    private final List<String> scannedDirs = new ArrayList<>();
+
+    /**
+     * Resolves the roots of a collection without a scan of
+     * the directories. The roots are files and directories,
+     * directories are included with all files, like in a
+     * file tree. Collections with patterns are visited and
+     * all matching files are roots.
+     *
+     * The collection is only used by this method, the
+     * roots can be indexed on a different thread.
+     *
+     * @param collection    file collection, eg. sources of a package
+     * @return absolute files and directories of the collection
+     */
+    public static Set<File> resolveRoots(FileCollection collection) {
+        Set<File> roots = new LinkedHashSet<>();
+        addCollection(collection, roots);
+        return roots;
+    }
+
+    /**
+     * Calculates the regular files of resolved roots.
+     * Directories are included with all files.
+     *
+     * @param roots     files and directories, see {@link #resolveRoots(FileCollection)}
+     * @return the files of the roots
+     */
+    public synchronized IndexedFiles getFiles(Collection<File> roots) {
+        NavigableMap<String, Long> result = new TreeMap<>();
+        for(File root : roots) {
+            addPath(root.toPath(), result);
+        }
+        return new IndexedFiles(result);
+    }
+
+    private static void addCollection(FileCollection collection, Set<File> roots) {
+        Set<File> collected = new LinkedHashSet<>();
+        if(collectRoots(collection, collected)) {
+            roots.addAll(collected);
+        } else {
+            visit(collection, roots);
+        }
+    }
+
+    /**
+     * Adds the roots of a collection. Returns false,
+     * if one of the roots can not be resolved
+     * without the collection.
+     */
+    private static boolean collectRoots(Object element, Set<File> roots) {
+        if(element instanceof ConfigurableFileCollection) {
+            for(Object from : ((ConfigurableFileCollection) element).getFrom()) {
+                if(from instanceof FileCollection) {
+                    addCollection((FileCollection) from, roots);
+                } else if(! collectRoots(from, roots)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if(element instanceof ConfigurableFileTree) {
+            ConfigurableFileTree tree = (ConfigurableFileTree) element;
+            if(! tree.getIncludes().isEmpty() || ! tree.getExcludes().isEmpty()) {
+                return false;
+            }
+            return collectRoots(tree.getDir(), roots);
+        }
+        if(element instanceof FileTree) {
+            return false;
+        }
+        if(element instanceof FileCollection) {
+            for(File file : ((FileCollection) element).getFiles()) {
+                roots.add(file.getAbsoluteFile());
+            }
+            return true;
+        }
+        if(element instanceof Provider) {
+            Object value = ((Provider<?>) element).getOrNull();
+            return value == null || collectRoots(value, roots);
+        }
+        if(element instanceof Directory) {
+            return collectRoots(((Directory) element).getAsFile(), roots);
+        }
+        if(element instanceof RegularFile) {
+            return collectRoots(((RegularFile) element).getAsFile(), roots);
+        }
+        if(element instanceof File && ((File) element).isAbsolute()) {
+            roots.add((File) element);
+            return true;
+        }
+        if(element instanceof Path && ((Path) element).isAbsolute()) {
+            roots.add(((Path) element).toFile());
+            return true;
+        }
+        if(element instanceof Collection) {
+            for(Object item : (Collection<?>) element) {
+                if(! collectRoots(item, roots)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        // relative paths, closures etc. are resolved by the collection
+        return false;
+    }
+
+    private void addPath(Path path, NavigableMap<String, Long> result) {
+        Path normalized = path.toAbsolutePath().normalize();
+        if(Files.isDirectory(normalized)) {
+            String dir = scanDir(normalized);
+            result.putAll(files.subMap(dir + SEPARATOR, true, dir + (char)(SEPARATOR + 1), false));
+        } else if(Files.isRegularFile(normalized)) {
+            String file = normalized.toString();
+            Long size = files.get(file);
+            if(size == null) {
+                size = normalized.toFile().length();
+                files.put(file, size);
+            }
+            result.put(file, size);
+        }
+    }
+
+    private static void visit(FileCollection collection, final Set<File> roots) {
+        collection.getAsFileTree().visit(new FileVisitor() {
+            @Override
+            public void visitDir(FileVisitDetails dirDetails) {
+            }
+
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                roots.add(fileDetails.getFile().getAbsoluteFile());
+            }
+        });
+    }
+
+    /**
+     * Scans a directory, if it is not part of an already
+     * scanned directory. Files and directories, that match
+     * the default excludes of Gradle, are not indexed like
+     * in a file tree. Links are followed, a link to a
+     * parent directory is ignored.
+     */
+    private String scanDir(final Path dir) {
+        String dirPath = dir.toString();
+        for(String scannedDir : scannedDirs) {
+            if(dirPath.equals(scannedDir) || dirPath.startsWith(scannedDir + SEPARATOR)) {
+                return dirPath;
+            }
+        }
+
+        final String[] defaultExcludes = getDefaultExcludes();
+        try {
+            Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs) {
+                    if(! subDir.equals(dir) && isExcluded(dir.relativize(subDir), defaultExcludes)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if(attrs.isRegularFile() && ! isExcluded(dir.relativize(file), defaultExcludes)) {
+                        files.put(file.toString(), attrs.size());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException ex) throws IOException {
+                    if(ex instanceof FileSystemLoopException) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    throw ex;
+                }
+            });
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Directory " + dir + " was not scanned.", ex);
+        }
+
+        scannedDirs.add(dirPath);
+        return dirPath;
+    }
+
+    /**
+     * The default excludes of Gradle are the default excludes
+     * of Ant. They can be changed in the settings of a build.
+     */
+    private static String[] getDefaultExcludes() {
+        String[] defaultExcludes = DirectoryScanner.getDefaultExcludes();
+        for(int i = 0; i < defaultExcludes.length; i++) {
+            defaultExcludes[i] = defaultExcludes[i].replace('/', SEPARATOR).replace('\\', SEPARATOR);
+        }
+        return defaultExcludes;
+    }
+
+    private static boolean isExcluded(Path relativePath, String[] defaultExcludes) {
+        String path = relativePath.toString();
+        for(String exclude : defaultExcludes) {
+            if(SelectorUtils.matchPath(exclude, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Regular files of a file collection.
+     */
+    public static class IndexedFiles {
+
+        private final NavigableMap<String, Long> files;
+
+        IndexedFiles(NavigableMap<String, Long> files) {
+            this.files = files;
+        }
+
+        public int getCount() {
+            return files.size();
+        }
+
+        public long getSize() {
+            long size = 0;
+            for(Long fileSize : files.values()) {
+                size += fileSize;
+            }
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return files.isEmpty();
+        }
+
+        /**
+         * Absolute paths of all files.
+         *
+         * @return sorted file paths
+         */
+        public Collection<String> getPaths() {
+            return Collections.unmodifiableSet(files.keySet());
+        }
+
+        /**
+         * Removes the static libraries from the files.
+         *
+         * @param staticLibs    index of static libraries
+         * @return the files without static libraries
+         */
+        public IndexedFiles without(StaticLibIndex staticLibs) {
+            if(staticLibs.isEmpty()) {
+                return this;
+            }
+            NavigableMap<String, Long> result = new TreeMap<>();
+            for(Map.Entry<String, Long> entry : files.entrySet()) {
+                if(! staticLibs.contains(new File(entry.getKey()))) {
+                    result.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return new IndexedFiles(result);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This class provides a hash based index of the
+ * static libraries of a cartridge. The libraries are
+ * resolved once with their canonical and absolute path,
+ * a lookup is a constant time operation without any
+ * access to the file system.
+ */
+public class StaticLibIndex {
+
+    private final Set<String> paths = new HashSet<>();
+
+    public StaticLibIndex(Iterable<File> staticLibs) {
+        for(File lib : staticLibs) {
+            paths.add(normalize(lib));
+            try {
+                paths.add(lib.getCanonicalPath());
+            } catch (IOException ex) {
+                // the absolute path is already available
+            }
+        }
+    }
+
+    /**
+     * Checks if there are static libraries.
+     *
+     * @return true if the index is empty
+     */
+    public boolean isEmpty() {
+        return paths.isEmpty();
+    }
+
+    /**
+     * Checks if the file is one of the static libraries.
+     *
+     * @param file  file to check
+     * @return true if the file is a static library
+     */
+    public boolean contains(File file) {
+        return ! paths.isEmpty() && paths.contains(normalize(file));
+    }
+
+    private static String normalize(File file) {
+        return file.toPath().toAbsolutePath().normalize().toString();
+    }
+}
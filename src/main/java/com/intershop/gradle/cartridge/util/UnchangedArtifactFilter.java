@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge.util;
+
+import org.gradle.api.DomainObjectSet;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.publish.PublicationArtifact;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Removes artifacts from a publication, that are available with the
+ * same checksum in the target repository. The artifacts are removed
+ * before a publish task uploads the publication and added again after
+ * the publish task, also if the upload failed, so that other
+ * repositories get the complete publication.
+ * The descriptor of the publication is not changed.
+ *
+ * @param <T> type of the publication artifacts
+ */
+public class UnchangedArtifactFilter<T extends PublicationArtifact> {
+
+    private static final Logger LOGGER = Logging.getLogger(UnchangedArtifactFilter.class);
+
+    private final DomainObjectSet<T> artifacts;
+    private final Function<T, String> keyFunction;
+    private final List<T> skippedArtifacts = new ArrayList<>();
+
+    /**
+     * @param artifacts     artifacts of the publication
+     * @param keyFunction   calculates the key of an artifact in the checksum manifest
+     */
+    public UnchangedArtifactFilter(DomainObjectSet<T> artifacts, Function<T, String> keyFunction) {
+        this.artifacts = artifacts;
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * Removes all artifacts with the same checksum in the repository.
+     *
+     * @param checksums     checksums of the manifest of the publication
+     * @param repositoryUrl URL of the target repository
+     * @param pathFunction  calculates the path of an artifact in the repository
+     */
+    public void removeUnchanged(Map<String, String> checksums, URI repositoryUrl, Function<T, String> pathFunction) {
+        // artifacts of a failed upload are added again
+        restore();
+
+        for(T artifact : new ArrayList<>(artifacts)) {
+            String checksum = checksums.get(keyFunction.apply(artifact));
+            if(checksum == null) {
+                continue;
+            }
+
+            String path = pathFunction.apply(artifact);
+            if(ArtifactChecksums.isSame(checksum, ArtifactChecksums.readRemoteSha1(repositoryUrl, path))) {
+                LOGGER.info("Artifact {} is unchanged in {} and is not published again.", path, repositoryUrl);
+                artifacts.remove(artifact);
+                skippedArtifacts.add(artifact);
+            }
+        }
+
+        if(! skippedArtifacts.isEmpty()) {
+            LOGGER.lifecycle("{} unchanged artifact(s) skipped for {}.", skippedArtifacts.size(), repositoryUrl);
+        }
+    }
+
+    /**
+     * Adds the removed artifacts to the publication.
+     */
+    public void restore() {
+        artifacts.addAll(skippedArtifacts);
+        skippedArtifacts.clear();
+    }
+}
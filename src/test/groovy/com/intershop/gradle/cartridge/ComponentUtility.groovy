@@ -70,4 +70,74 @@ class ComponentUtility {
         prepareDeploymentFile(dir, cartridgename)
     }
 
+    /**
+     * Creates the static files of a cartridge with a configurable number and
+     * size of files in the local, share and cartridge folder and in the edl folder.
+     * The content is created from a fixed seed, so that all runs use the same files.
+     */
+    static void prepareSyntheticCartridge(File dir, String cartridgename, int filesPerFolder, int fileSize) {
+        Random random = new Random(cartridgename.hashCode())
+        ['staticfiles/general/root/system/config',
+         'staticfiles/share/sites/$cartridge$/units/root/impex/src',
+         'staticfiles/share/system/config/cartridges',
+         'staticfiles/cartridge/templates/default',
+         'staticfiles/cartridge/pipelines',
+         'edl/com/intershop/$cartridge$'].each { String folderpath ->
+            prepareFolders(dir, folderpath, cartridgename)
+            File folder = new File(dir, folderpath.replace('$cartridge$', cartridgename))
+            (1..filesPerFolder).each { int i ->
+                new File(folder, "file${i}.txt").text = createContent(random, fileSize)
+            }
+        }
+        // static lib, that is excluded from the cartridge package
+        prepareStaticCartridgeSimpleLibFolder(dir, cartridgename)
+    }
+
+    /**
+     * Creates a multi project build with the number of cartridges.
+     * Each cartridge has a local, share and cartridge package.
+     */
+    static List<String> prepareSyntheticBuild(File dir, int cartridges, int filesPerFolder, int fileSize) {
+        List<String> cartridgeNames = (1..cartridges).collect { int i -> String.format('cartridge%04d', i) }
+        cartridgeNames.each { String cartridgename ->
+            prepareSyntheticCartridge(new File(dir, cartridgename), cartridgename, filesPerFolder, fileSize)
+        }
+
+        new File(dir, 'settings.gradle').text = """
+        rootProject.name = 'synthetic-assembly'
+        include ${cartridgeNames.collect { "'${it}'" }.join(', ')}
+        """.stripIndent()
+
+        new File(dir, 'build.gradle').text = """
+        plugins {
+            id 'com.intershop.gradle.cartridge' apply false
+        }
+
+        subprojects {
+            apply plugin: 'com.intershop.gradle.cartridge'
+
+            version = '1.0.0'
+
+            intershop {
+                packages {
+                    local()
+                    share()
+                    cartridge()
+                }
+            }
+        }
+        """.stripIndent()
+
+        return cartridgeNames
+    }
+
+    private static String createContent(Random random, int size) {
+        String[] words = ['intershop', 'cartridge', 'pipeline', 'template', 'property', '<value>', '</value>', '\n']
+        StringBuilder content = new StringBuilder(size + 16)
+        while(content.length() < size) {
+            content.append(words[random.nextInt(words.length)]).append(' ')
+        }
+        content.setLength(size)
+        return content.toString()
+    }
 }
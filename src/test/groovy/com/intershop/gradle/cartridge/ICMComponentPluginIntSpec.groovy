@@ -16,6 +16,8 @@
 package com.intershop.gradle.cartridge
 
 import com.intershop.gradle.cartridge.extension.IntershopExtension
+import com.intershop.gradle.cartridge.task.ZipComponent
+import com.intershop.gradle.cartridge.util.ArtifactChecksums
 import com.intershop.gradle.test.AbstractIntegrationSpec
 import org.gradle.testkit.runner.TaskOutcome
 import spock.lang.Unroll
@@ -65,6 +67,7 @@ class ICMComponentPluginIntSpec extends AbstractIntegrationSpec {
         shareZip.exists()
         dumpZipContent(cartridgeZip).contains("${projectName}/release/pipelines/testpipeline.pipeline".toString())
         !dumpZipContent(cartridgeZip).contains("${projectName}/release/lib/testfile.jar".toString())
+        result1.output.contains("1 static lib(s) excluded from component archive ${projectName}-cartridge-unspecified.zip")
 
         when:
         def result2 = getPreparedGradleRunner()
@@ -85,6 +88,752 @@ class ICMComponentPluginIntSpec extends AbstractIntegrationSpec {
         gradleVersion << supportedGradleVersions
     }
 
+    @Unroll
+    def 'Test parallel component build - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        ComponentUtility.prepareLocalOSspecificFiles(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+
+        version = '1.0.0'
+
+        intershop {
+            parallelPackaging = true
+            maxParallelPackages = 2
+
+            packages {
+                createLocal('win.x86_64') {
+                    sources(project.files('staticfiles/general/win-AMD64/root'))
+                }
+                createLocal('linux.x86_64') {
+                    sources(project.files('staticfiles/general/linux-SLES10.0-x86_64/root'))
+                }
+                share()
+                cartridge()
+            }
+        }
+
+        """.stripIndent()
+
+        String pluginBuildDir = "build/${IntershopExtension.MAIN_OUTPUTDIR_NAME}"
+
+        File localWinZip = new File(testProjectDir, "${pluginBuildDir}/local_win.x86_64/${projectName}-local-1.0.0-win.x86_64.zip")
+        File localLinuxZip = new File(testProjectDir, "${pluginBuildDir}/local_linux.x86_64/${projectName}-local-1.0.0-linux.x86_64.zip")
+        File cartridgeZip = new File(testProjectDir, "${pluginBuildDir}/cartridge/${projectName}-cartridge-1.0.0.zip")
+        File shareZip = new File(testProjectDir, "${pluginBuildDir}/share/${projectName}-share-1.0.0.zip")
+
+        when:
+        List<String> args = ['zipLocal_win.x86_64', 'zipLocal_linux.x86_64', 'zipShare', 'zipCartridge', '-s', '-i']
+        def result1 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result1.task(":zipLocal_win.x86_64").outcome == TaskOutcome.SUCCESS
+        result1.task(":zipLocal_linux.x86_64").outcome == TaskOutcome.SUCCESS
+        result1.task(":zipShare").outcome == TaskOutcome.SUCCESS
+        result1.task(":zipCartridge").outcome == TaskOutcome.SUCCESS
+
+        dumpZipContent(localWinZip).contains("intershop.properties")
+        dumpZipContent(localWinZip).contains("bin/environment.bat")
+        dumpZipContent(localLinuxZip).contains("bin/environment.sh")
+        dumpZipContent(shareZip).contains("sites/${projectName}/units/root/impex/src/Users.xml".toString())
+        dumpZipContent(cartridgeZip).contains("${projectName}/release/pipelines/testpipeline.pipeline".toString())
+        !dumpZipContent(cartridgeZip).contains("${projectName}/release/lib/testfile.jar".toString())
+
+        when:
+        def result2 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result2.task(":zipLocal_win.x86_64").outcome == TaskOutcome.UP_TO_DATE
+        result2.task(":zipShare").outcome == TaskOutcome.UP_TO_DATE
+        result2.task(":zipCartridge").outcome == TaskOutcome.UP_TO_DATE
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test incremental component build - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        ComponentUtility.prepareCartridgConfig(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+
+        intershop {
+            incrementalPackaging = true
+
+            packages {
+               share()
+            }
+        }
+
+        """.stripIndent()
+
+        File shareZip = new File(testProjectDir, "build/${IntershopExtension.MAIN_OUTPUTDIR_NAME}/share/${projectName}-share-unspecified.zip")
+        File usersFile = new File(testProjectDir, "staticfiles/share/sites/${projectName}/units/root/impex/src/Users.xml")
+
+        when:
+        List<String> args = ['zipShare', '-s', '-i']
+        def result1 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result1.task(":zipShare").outcome == TaskOutcome.SUCCESS
+        dumpZipContent(shareZip).contains("sites/${projectName}/units/root/impex/src/Users.xml".toString())
+
+        when:
+        usersFile << '// changed content'
+        def result2 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+        byte[] incrementalContent = shareZip.bytes
+
+        def result3 = getPreparedGradleRunner()
+                .withArguments(['zipShare', '--rerun-tasks', '-s', '-i'])
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result2.task(":zipShare").outcome == TaskOutcome.SUCCESS
+        result3.task(":zipShare").outcome == TaskOutcome.SUCCESS
+        incrementalContent == shareZip.bytes
+        new java.util.zip.ZipFile(shareZip).with { zf ->
+            zf.getInputStream(zf.getEntry("sites/${projectName}/units/root/impex/src/Users.xml".toString())).text.endsWith('// changed content')
+        }
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test component build with compression settings - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        ComponentUtility.prepareCartridgConfig(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+
+        intershop {
+            packages {
+                compressionLevel = 1
+
+                share {
+                    store '*.properties'
+                }
+                cartridge {
+                    storeOnly = true
+                }
+            }
+        }
+
+        """.stripIndent()
+
+        File cartridgeZip = new File(testProjectDir, "build/${IntershopExtension.MAIN_OUTPUTDIR_NAME}/cartridge/${projectName}-cartridge-unspecified.zip")
+        File shareZip = new File(testProjectDir, "build/${IntershopExtension.MAIN_OUTPUTDIR_NAME}/share/${projectName}-share-unspecified.zip")
+
+        when:
+        List<String> args = ['zipCartridge', 'zipShare', '-s', '-i']
+        def result1 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result1.task(":zipCartridge").outcome == TaskOutcome.SUCCESS
+        result1.task(":zipShare").outcome == TaskOutcome.SUCCESS
+
+        getZipEntryMethod(shareZip, "system/config/cartridges/${projectName}.properties") == java.util.zip.ZipEntry.STORED
+        getZipEntryMethod(shareZip, "sites/${projectName}/units/root/impex/src/Users.xml") == java.util.zip.ZipEntry.DEFLATED
+        getZipEntryMethod(cartridgeZip, "${projectName}/release/pipelines/testpipeline.pipeline") == java.util.zip.ZipEntry.STORED
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test component build with parallel deflate - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        File usersFile = new File(testProjectDir, "staticfiles/share/sites/${projectName}/units/root/impex/src/Users.xml")
+        StringBuilder content = new StringBuilder()
+        Random random = new Random(42)
+        while(content.length() < 2 * 1024 * 1024) {
+            content.append("<user id=\"${random.nextInt(100000)}\"/>\n")
+        }
+        usersFile.text = content.toString()
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+
+        intershop {
+            packages {
+                share {
+                    parallelDeflateThreshold = 100000
+                }
+            }
+        }
+
+        """.stripIndent()
+
+        File shareZip = new File(testProjectDir, "build/${IntershopExtension.MAIN_OUTPUTDIR_NAME}/share/${projectName}-share-unspecified.zip")
+
+        when:
+        List<String> args = ['zipShare', '-s', '-i']
+        def result = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result.task(":zipShare").outcome == TaskOutcome.SUCCESS
+        getZipEntryMethod(shareZip, "sites/${projectName}/units/root/impex/src/Users.xml") == java.util.zip.ZipEntry.DEFLATED
+        new java.util.zip.ZipFile(shareZip).with { zf ->
+            zf.getInputStream(zf.getEntry("sites/${projectName}/units/root/impex/src/Users.xml".toString())).text == usersFile.text
+        }
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test component build with packaging cache - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+
+        intershop {
+            packagingCache = true
+            packagingCacheDir = file('build/packagingcache')
+
+            packages {
+                share()
+            }
+        }
+
+        """.stripIndent()
+
+        File shareZip = new File(testProjectDir, "build/${IntershopExtension.MAIN_OUTPUTDIR_NAME}/share/${projectName}-share-unspecified.zip")
+        File cacheDir = new File(testProjectDir, 'build/packagingcache')
+
+        when:
+        List<String> args = ['zipShare', '-s', '-i']
+        def result1 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+        byte[] firstContent = shareZip.bytes
+        int cacheEntries = cacheDir.listFiles().sum { it.listFiles().size() }
+
+        def result2 = getPreparedGradleRunner()
+                .withArguments(['zipShare', '--rerun-tasks', '-s', '-i'])
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result1.task(":zipShare").outcome == TaskOutcome.SUCCESS
+        result2.task(":zipShare").outcome == TaskOutcome.SUCCESS
+        // both Users.xml files have the same content
+        cacheEntries > 0
+        cacheEntries < dumpZipContent(shareZip).size()
+        cacheDir.listFiles().sum { it.listFiles().size() } == cacheEntries
+        firstContent == shareZip.bytes
+        new java.util.zip.ZipFile(shareZip).with { zf ->
+            zf.getInputStream(zf.getEntry("sites/${projectName}/units/root/impex/src/Users.xml".toString())).text == '// content file users xml'
+        }
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test component build with package matrix - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        ComponentUtility.prepareLocalOSspecificFiles(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+
+        version = '1.0.0'
+
+        intershop {
+            packages {
+                createLocalMatrix(['win.x86_64', 'linux.x86_64']) {
+                    compressionLevel = 9
+                }
+                createLocal('win.x86_64') {
+                    sources(project.files('staticfiles/general/win-AMD64/root'))
+                }
+                createLocal('linux.x86_64') {
+                    sources(project.files('staticfiles/general/linux-SLES10.0-x86_64/root'))
+                }
+            }
+        }
+
+        """.stripIndent()
+
+        String pluginBuildDir = "build/${IntershopExtension.MAIN_OUTPUTDIR_NAME}"
+
+        File localWinZip = new File(testProjectDir, "${pluginBuildDir}/local_win.x86_64/${projectName}-local-1.0.0-win.x86_64.zip")
+        File localLinuxZip = new File(testProjectDir, "${pluginBuildDir}/local_linux.x86_64/${projectName}-local-1.0.0-linux.x86_64.zip")
+        File sharedEntriesDir = new File(testProjectDir, "build/${IntershopExtension.SHARED_ENTRIES_DIR}")
+
+        when:
+        def result = getPreparedGradleRunner()
+                .withArguments(['zipLocal_win.x86_64', 'zipLocal_linux.x86_64', '-s', '-i'])
+                .withGradleVersion(gradleVersion)
+                .build()
+        int sharedEntries = sharedEntriesDir.listFiles().sum { it.listFiles().size() }
+        List<String> winContent = dumpZipContent(localWinZip)
+        List<String> linuxContent = dumpZipContent(localLinuxZip)
+
+        then:
+        result.task(":zipLocal_win.x86_64").outcome == TaskOutcome.SUCCESS
+        result.task(":zipLocal_linux.x86_64").outcome == TaskOutcome.SUCCESS
+        result.output.indexOf('> Task :zipLocal_win.x86_64') < result.output.indexOf('> Task :zipLocal_linux.x86_64')
+
+        winContent.contains("intershop.properties")
+        linuxContent.contains("intershop.properties")
+        winContent.contains("bin/environment.bat")
+        !winContent.contains("bin/environment.sh")
+        linuxContent.contains("bin/environment.sh")
+        !linuxContent.contains("bin/environment.bat")
+
+        // common files are compressed only once for both packages
+        sharedEntries > 0
+        sharedEntries < winContent.size() + linuxContent.size()
+        new java.util.zip.ZipFile(localLinuxZip).with { zf ->
+            zf.getInputStream(zf.getEntry("intershop.properties")).text ==
+                    new java.util.zip.ZipFile(localWinZip).with { wzf -> wzf.getInputStream(wzf.getEntry("intershop.properties")).text }
+        }
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test watch mode of a component build - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+
+        intershop {
+            packages {
+                share()
+                cartridge()
+            }
+        }
+
+        watchComponents {
+            packageNames = ['share']
+            idleTimeout = 5000
+        }
+
+        """.stripIndent()
+
+        File shareZip = new File(testProjectDir, "build/${IntershopExtension.MAIN_OUTPUTDIR_NAME}/share/${projectName}-share-unspecified.zip")
+        File usersFile = new File(testProjectDir, "staticfiles/share/sites/${projectName}/units/root/impex/src/Users.xml")
+        File newFile = new File(testProjectDir, "staticfiles/share/sites/${projectName}/units/root/impex/src/Roles.xml")
+
+        when:
+        def result = null
+        Thread build = Thread.start {
+            result = getPreparedGradleRunner()
+                    .withArguments(['watchComponents', '-s', '-i'])
+                    .withGradleVersion(gradleVersion)
+                    .build()
+        }
+
+        // the sources are changed after the creation of the package
+        long timeout = System.currentTimeMillis() + 120000
+        while(! shareZip.isFile() && System.currentTimeMillis() < timeout) {
+            sleep(100)
+        }
+        sleep(1500)
+        usersFile.text = '// changed users xml'
+        newFile << '// roles xml'
+        build.join(180000)
+
+        then:
+        result != null
+        result.task(":zipShare").outcome == TaskOutcome.SUCCESS
+        result.task(":zipCartridge") == null
+        result.task(":watchComponents").outcome == TaskOutcome.SUCCESS
+        result.output.contains("Component archive ${projectName}-share-unspecified.zip updated")
+        dumpZipContent(shareZip).contains("sites/${projectName}/units/root/impex/src/Roles.xml".toString())
+        new java.util.zip.ZipFile(shareZip).with { zf ->
+            zf.getInputStream(zf.getEntry("sites/${projectName}/units/root/impex/src/Users.xml".toString())).text == '// changed users xml'
+        }
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test exploded component build - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+
+        intershop {
+            packages {
+                share {
+                    exploded = true
+                }
+                cartridge {
+                    exploded = true
+                }
+            }
+        }
+
+        """.stripIndent()
+
+        File explodedDir = new File(testProjectDir, "build/${IntershopExtension.EXPLODED_DIR}")
+        File pipelineFile = new File(explodedDir, "cartridge/${projectName}/release/pipelines/testpipeline.pipeline")
+        File staticLibFile = new File(explodedDir, "cartridge/${projectName}/release/lib/testfile.jar")
+        File usersFile = new File(explodedDir, "share/sites/${projectName}/units/root/impex/src/Users.xml")
+        File configUsersFile = new File(explodedDir, "share/sites/${projectName}/units/root/impex/config/Users.xml")
+
+        when:
+        def result1 = getPreparedGradleRunner()
+                .withArguments(['explodeComponents', '-s', '-i'])
+                .withGradleVersion(gradleVersion)
+                .build()
+        long configUsersModified = configUsersFile.lastModified()
+
+        then:
+        result1.task(":explodeShare").outcome == TaskOutcome.SUCCESS
+        result1.task(":explodeCartridge").outcome == TaskOutcome.SUCCESS
+        result1.task(":zipShare") == null
+        pipelineFile.text == '// pipeline content'
+        !staticLibFile.exists()
+        usersFile.text == '// content file users xml'
+
+        when:
+        sleep(1100)
+        new File(testProjectDir, "staticfiles/share/sites/${projectName}/units/root/impex/src/Users.xml").text = '// changed users xml'
+        new File(testProjectDir, "staticfiles/cartridge/pipelines/testpipeline.pipeline").delete()
+        def result2 = getPreparedGradleRunner()
+                .withArguments(['explodeComponents', '-s', '-i'])
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result2.task(":explodeShare").outcome == TaskOutcome.SUCCESS
+        result2.task(":explodeCartridge").outcome == TaskOutcome.SUCCESS
+        usersFile.text == '// changed users xml'
+        configUsersFile.lastModified() == configUsersModified
+        !pipelineFile.exists()
+        result2.output.contains('1 file(s) copied')
+
+        when:
+        def result3 = getPreparedGradleRunner()
+                .withArguments(['explodeComponents', '-s', '-i'])
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result3.task(":explodeShare").outcome == TaskOutcome.UP_TO_DATE
+        result3.task(":explodeCartridge").outcome == TaskOutcome.UP_TO_DATE
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test exploded component build with hard links - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+
+        intershop {
+            explodedHardLinks = true
+
+            packages {
+                share {
+                    exploded = true
+                }
+            }
+        }
+
+        """.stripIndent()
+
+        File sourceFile = new File(testProjectDir, "staticfiles/share/sites/${projectName}/units/root/impex/src/Users.xml")
+        File explodedFile = new File(testProjectDir, "build/${IntershopExtension.EXPLODED_DIR}/share/sites/${projectName}/units/root/impex/src/Users.xml")
+
+        when:
+        def result = getPreparedGradleRunner()
+                .withArguments(['explodeShare', '-s', '-i'])
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result.task(":explodeShare").outcome == TaskOutcome.SUCCESS
+        java.nio.file.Files.isSameFile(sourceFile.toPath(), explodedFile.toPath())
+        result.output.contains('2 linked')
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+
+    @Unroll
+    def 'Test exploded component build replaces hard links with copies - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+
+        intershop {
+            explodedHardLinks = true
+
+            packages {
+                share {
+                    exploded = true
+                }
+            }
+        }
+
+        """.stripIndent()
+
+        File sourceFile = new File(testProjectDir, "staticfiles/share/sites/${projectName}/units/root/impex/src/Users.xml")
+        File explodedFile = new File(testProjectDir, "build/${IntershopExtension.EXPLODED_DIR}/share/sites/${projectName}/units/root/impex/src/Users.xml")
+
+        when:
+        def result1 = getPreparedGradleRunner()
+                .withArguments(['explodeShare', '-s', '-i'])
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result1.task(":explodeShare").outcome == TaskOutcome.SUCCESS
+        java.nio.file.Files.isSameFile(sourceFile.toPath(), explodedFile.toPath())
+
+        when:
+        String sourceText = sourceFile.text
+        buildFile.text = buildFile.text.replace('explodedHardLinks = true', 'explodedHardLinks = false')
+        def result2 = getPreparedGradleRunner()
+                .withArguments(['explodeShare', '-s', '-i'])
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        // a development server changes the exploded file
+        explodedFile << '// changed in exploded directory'
+
+        then:
+        result2.task(":explodeShare").outcome == TaskOutcome.SUCCESS
+        result2.output.contains('2 file(s) copied')
+        ! java.nio.file.Files.isSameFile(sourceFile.toPath(), explodedFile.toPath())
+        sourceFile.text == sourceText
+        explodedFile.text.endsWith('// changed in exploded directory')
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test component build with build cache from relocated project - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        File cacheDir = new File(testProjectDir, 'buildcache')
+        File projectDir1 = new File(testProjectDir, 'checkout1')
+        File projectDir2 = new File(testProjectDir, 'checkout2')
+
+        [projectDir1, projectDir2].each { File projectDir ->
+            ComponentUtility.prepareCartridge(projectDir, projectName)
+            new File(projectDir, 'settings.gradle') << """
+            rootProject.name = '${projectName}'
+
+            buildCache {
+                local(DirectoryBuildCache) {
+                    directory = new File('${cacheDir.absolutePath.replace('\\', '/')}')
+                }
+            }
+            """.stripIndent()
+
+            new File(projectDir, 'build.gradle') << """
+            plugins {
+                id 'com.intershop.gradle.cartridge'
+            }
+
+            intershop {
+                packages {
+                    share()
+                    cartridge()
+                }
+            }
+            """.stripIndent()
+        }
+
+        when:
+        List<String> args = ['zipShare', 'zipCartridge', '--build-cache', '-s', '-i']
+        def result1 = getPreparedGradleRunner()
+                .withProjectDir(projectDir1)
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+        def result2 = getPreparedGradleRunner()
+                .withProjectDir(projectDir2)
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        File shareZip = new File(projectDir2, "build/${IntershopExtension.MAIN_OUTPUTDIR_NAME}/share/${projectName}-share-unspecified.zip")
+
+        then:
+        result1.task(":zipShare").outcome == TaskOutcome.SUCCESS
+        result1.task(":zipCartridge").outcome == TaskOutcome.SUCCESS
+        result2.task(":zipShare").outcome == TaskOutcome.FROM_CACHE
+        result2.task(":zipCartridge").outcome == TaskOutcome.FROM_CACHE
+        dumpZipContent(shareZip).contains("sites/${projectName}/units/root/impex/src/Users.xml".toString())
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test reproducible component build - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        File projectDir1 = new File(testProjectDir, 'checkout1')
+        File projectDir2 = new File(testProjectDir, 'checkout2')
+
+        [projectDir1, projectDir2].each { File projectDir ->
+            ComponentUtility.prepareCartridge(projectDir, projectName)
+            new File(projectDir, 'settings.gradle') << """
+            rootProject.name = '${projectName}'
+            """.stripIndent()
+
+            new File(projectDir, 'build.gradle') << """
+            plugins {
+                id 'com.intershop.gradle.cartridge'
+            }
+
+            intershop {
+                reproducibleArchives = true
+
+                packages {
+                    share()
+                    cartridge()
+                }
+            }
+            """.stripIndent()
+        }
+
+        // the second checkout has other timestamps
+        long time = System.currentTimeMillis() - 86400000L
+        projectDir2.eachFileRecurse { File file -> file.setLastModified(time) }
+
+        when:
+        List<String> args = ['zipShare', 'zipCartridge', '-s', '-i']
+        def result1 = getPreparedGradleRunner()
+                .withProjectDir(projectDir1)
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+        def result2 = getPreparedGradleRunner()
+                .withProjectDir(projectDir2)
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        String sharePath = "build/${IntershopExtension.MAIN_OUTPUTDIR_NAME}/share/${projectName}-share-unspecified.zip"
+        String cartridgePath = "build/${IntershopExtension.MAIN_OUTPUTDIR_NAME}/cartridge/${projectName}-cartridge-unspecified.zip"
+
+        List<String> entryNames = new java.util.zip.ZipFile(new File(projectDir1, sharePath)).with { zf ->
+            zf.entries().collect { it.name.endsWith('/') ? it.name[0..-2] : it.name }
+        }
+        Set<Long> entryTimes = new java.util.zip.ZipFile(new File(projectDir1, sharePath)).with { zf ->
+            zf.entries().collect { it.time } as Set
+        }
+
+        then:
+        result1.task(":zipShare").outcome == TaskOutcome.SUCCESS
+        result2.task(":zipShare").outcome == TaskOutcome.SUCCESS
+        new File(projectDir1, sharePath).bytes == new File(projectDir2, sharePath).bytes
+        new File(projectDir1, cartridgePath).bytes == new File(projectDir2, cartridgePath).bytes
+        entryNames == entryNames.sort(false)
+        entryTimes == [ZipComponent.CONSTANT_TIME_FOR_ZIP_ENTRIES] as Set
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
     @Unroll
     def 'Test publish component build - ivy happy path - #gradleVersion'(gradleVersion) {
         given:
@@ -99,7 +848,121 @@ class ICMComponentPluginIntSpec extends AbstractIntegrationSpec {
 
         buildFile  << """
         plugins {
-            id 'ivy-publish'
+            id 'ivy-publish'
+            id 'com.intershop.gradle.cartridge'
+        }
+        
+        group = '${testGroupName}'
+        version = '${testVersion}'
+
+        intershop {
+            packages {
+                share()
+                cartridge()
+            }
+        }
+        
+        publishing {
+            repositories {
+                ivy {
+                    url "\${rootProject.buildDir}/repo"
+                    layout('pattern') {
+                        ivy '[organisation]/[module]/[revision]/[type]s/ivy-[revision].xml'
+                        artifact '[organisation]/[module]/[revision]/[ext]s/[artifact]-[type](-[classifier])-[revision].[ext]'
+                        artifact '[organisation]/[module]/[revision]/[type]s/ivy-[revision].xml'
+                    }
+                }
+            }
+        }
+        
+        """.stripIndent()
+
+        String pluginBuildDir = "build/${IntershopExtension.MAIN_OUTPUTDIR_NAME}"
+
+        File cartridgeZip = new File(testProjectDir, "${pluginBuildDir}/cartridge/${projectName}-cartridge-${testVersion}.zip")
+        File shareZip = new File(testProjectDir, "${pluginBuildDir}/share/${projectName}-share-${testVersion}.zip")
+        File ivyFile = new File(testProjectDir, "build/publications/ivyIntershop/ivy.xml")
+
+        String pluginRepoDir = "build/repo/${testGroupName}/${projectName}/${testVersion}"
+
+        File repoCartridgeZip = new File(testProjectDir, "${pluginRepoDir}/zips/${projectName}-cartridge-${testVersion}.zip")
+        File repoShareZip = new File(testProjectDir, "${pluginRepoDir}/zips/${projectName}-share-${testVersion}.zip")
+        File repoJarFile = new File(testProjectDir, "${pluginRepoDir}/jars/testfile-jar-${testVersion}.jar")
+        File repoDeployFile = new File(testProjectDir, "${pluginRepoDir}/gradles/deploy-deploy-gradle-${testVersion}.gradle")
+        File repoIvyDescriptor = new File(testProjectDir, "${pluginRepoDir}/ivys/ivy-${testVersion}.xml")
+
+        when:
+        List<String> args = ['publish', '-s', '-i']
+        def result1 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        // check tasks
+        result1.task(":zipCartridge").outcome == TaskOutcome.SUCCESS
+        result1.task(":zipShare").outcome == TaskOutcome.SUCCESS
+        result1.task(":publishIvyIntershopPublicationToIvyRepository").outcome == TaskOutcome.SUCCESS
+        result1.task(":publish").outcome == TaskOutcome.SUCCESS
+
+        // check files
+        cartridgeZip.exists()
+        shareZip.exists()
+        ivyFile.exists()
+
+        repoCartridgeZip.exists()
+        repoShareZip.exists()
+        repoJarFile.exists()
+        repoDeployFile.exists()
+        repoIvyDescriptor.exists()
+
+        // check content
+        repoDeployFile.text == new File(testProjectDir, "deployment/deploy.gradle").text
+
+        dumpZipContent(repoShareZip).contains("sites/${projectName}/units/root/impex/config/Users.xml".toString())
+        dumpZipContent(repoShareZip).contains("sites/${projectName}/units/root/impex/src/Users.xml".toString())
+        dumpZipContent(repoCartridgeZip).contains("${projectName}/release/pipelines/testpipeline.pipeline".toString())
+        !dumpZipContent(repoCartridgeZip).contains("${projectName}/release/lib/testfile.jar".toString())
+
+        ivyFile.text.contains("<e:displayName>${projectName}</e:displayName>")
+        ivyFile.text.contains('<ivy-module xmlns:e="http://ant.apache.org/ivy/extra" version="2.0">')
+        ivyFile.text.contains('<artifact conf="compile" ext="jar" name="testfile" type="jar"/>')
+        ivyFile.text.contains('<artifact ext="zip" name="' + projectName + '" type="cartridge"/>')
+        ivyFile.text.contains('<artifact ext="zip" name="' + projectName + '" type="share"')
+        ivyFile.text.contains('<artifact ext="gradle" name="deploy" type="deploy-gradle"/>')
+
+        when:
+        def result2 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result2.task(":zipCartridge").outcome == TaskOutcome.UP_TO_DATE
+        result2.task(":zipShare").outcome == TaskOutcome.UP_TO_DATE
+        result2.task(":publishIvyIntershopPublicationToIvyRepository").outcome == TaskOutcome.SUCCESS
+        result2.task(":publish").outcome == TaskOutcome.SUCCESS
+
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test publish component build - maven happy path - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+
+        String testGroupName = 'com.intershop.test'
+        String testVersion = '1.0.0'
+
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'maven-publish'
             id 'com.intershop.gradle.cartridge'
         }
         
@@ -115,13 +978,8 @@ class ICMComponentPluginIntSpec extends AbstractIntegrationSpec {
         
         publishing {
             repositories {
-                ivy {
+                maven {
                     url "\${rootProject.buildDir}/repo"
-                    layout('pattern') {
-                        ivy '[organisation]/[module]/[revision]/[type]s/ivy-[revision].xml'
-                        artifact '[organisation]/[module]/[revision]/[ext]s/[artifact]-[type](-[classifier])-[revision].[ext]'
-                        artifact '[organisation]/[module]/[revision]/[type]s/ivy-[revision].xml'
-                    }
                 }
             }
         }
@@ -132,15 +990,15 @@ class ICMComponentPluginIntSpec extends AbstractIntegrationSpec {
 
         File cartridgeZip = new File(testProjectDir, "${pluginBuildDir}/cartridge/${projectName}-cartridge-${testVersion}.zip")
         File shareZip = new File(testProjectDir, "${pluginBuildDir}/share/${projectName}-share-${testVersion}.zip")
-        File ivyFile = new File(testProjectDir, "build/publications/ivyIntershop/ivy.xml")
+        File pomFile = new File(testProjectDir, "build/publications/mvnIntershop/pom-default.xml")
 
-        String pluginRepoDir = "build/repo/${testGroupName}/${projectName}/${testVersion}"
+        String pluginRepoDir = "build/repo/${testGroupName.split('\\.').join('/')}/${projectName}/${testVersion}/${projectName}-${testVersion}"
 
-        File repoCartridgeZip = new File(testProjectDir, "${pluginRepoDir}/zips/${projectName}-cartridge-${testVersion}.zip")
-        File repoShareZip = new File(testProjectDir, "${pluginRepoDir}/zips/${projectName}-share-${testVersion}.zip")
-        File repoJarFile = new File(testProjectDir, "${pluginRepoDir}/jars/testfile-jar-${testVersion}.jar")
-        File repoDeployFile = new File(testProjectDir, "${pluginRepoDir}/gradles/deploy-deploy-gradle-${testVersion}.gradle")
-        File repoIvyDescriptor = new File(testProjectDir, "${pluginRepoDir}/ivys/ivy-${testVersion}.xml")
+        File repoCartridgeZip = new File(testProjectDir, "${pluginRepoDir}-cartridge.zip")
+        File repoShareZip = new File(testProjectDir, "${pluginRepoDir}-share.zip")
+        File repoJarFile = new File(testProjectDir, "${pluginRepoDir}-testfile.jar")
+        File repoDeployFile = new File(testProjectDir, "${pluginRepoDir}-deploy-gradle.gradle")
+        File repoPomDescriptor = new File(testProjectDir, "${pluginRepoDir}.pom")
 
         when:
         List<String> args = ['publish', '-s', '-i']
@@ -153,19 +1011,19 @@ class ICMComponentPluginIntSpec extends AbstractIntegrationSpec {
         // check tasks
         result1.task(":zipCartridge").outcome == TaskOutcome.SUCCESS
         result1.task(":zipShare").outcome == TaskOutcome.SUCCESS
-        result1.task(":publishIvyIntershopPublicationToIvyRepository").outcome == TaskOutcome.SUCCESS
+        result1.task(":publishMvnIntershopPublicationToMavenRepository").outcome == TaskOutcome.SUCCESS
         result1.task(":publish").outcome == TaskOutcome.SUCCESS
 
         // check files
         cartridgeZip.exists()
         shareZip.exists()
-        ivyFile.exists()
+        pomFile.exists()
 
         repoCartridgeZip.exists()
         repoShareZip.exists()
         repoJarFile.exists()
         repoDeployFile.exists()
-        repoIvyDescriptor.exists()
+        repoPomDescriptor.exists()
 
         // check content
         repoDeployFile.text == new File(testProjectDir, "deployment/deploy.gradle").text
@@ -175,12 +1033,7 @@ class ICMComponentPluginIntSpec extends AbstractIntegrationSpec {
         dumpZipContent(repoCartridgeZip).contains("${projectName}/release/pipelines/testpipeline.pipeline".toString())
         !dumpZipContent(repoCartridgeZip).contains("${projectName}/release/lib/testfile.jar".toString())
 
-        ivyFile.text.contains("<e:displayName>${projectName}</e:displayName>")
-        ivyFile.text.contains('<ivy-module xmlns:e="http://ant.apache.org/ivy/extra" version="2.0">')
-        ivyFile.text.contains('<artifact conf="compile" ext="jar" name="testfile" type="jar"/>')
-        ivyFile.text.contains('<artifact ext="zip" name="' + projectName + '" type="cartridge"/>')
-        ivyFile.text.contains('<artifact ext="zip" name="' + projectName + '" type="share"')
-        ivyFile.text.contains('<artifact ext="gradle" name="deploy" type="deploy-gradle"/>')
+        pomFile.text.contains("<cartridge-displayname>${projectName}</cartridge-displayname>".toString())
 
         when:
         def result2 = getPreparedGradleRunner()
@@ -191,112 +1044,336 @@ class ICMComponentPluginIntSpec extends AbstractIntegrationSpec {
         then:
         result2.task(":zipCartridge").outcome == TaskOutcome.UP_TO_DATE
         result2.task(":zipShare").outcome == TaskOutcome.UP_TO_DATE
-        result2.task(":publishIvyIntershopPublicationToIvyRepository").outcome == TaskOutcome.SUCCESS
+        result2.task(":publishMvnIntershopPublicationToMavenRepository").outcome == TaskOutcome.SUCCESS
         result2.task(":publish").outcome == TaskOutcome.SUCCESS
 
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test publish component build - changed archive directory - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'maven-publish'
+            id 'com.intershop.gradle.cartridge'
+        }
+        
+        group = 'com.intershop.test'
+        version = '1.0.0'
+
+        intershop {
+            packages {
+                share()
+                cartridge()
+            }
+        }
+
+        tasks.named('zipShare').configure {
+            destinationDir = file("\${buildDir}/other")
+        }
+        
+        publishing {
+            repositories {
+                maven {
+                    url "\${rootProject.buildDir}/repo"
+                }
+            }
+        }
+        
+        """.stripIndent()
+
+        when:
+        List<String> args = ['publish', '-s']
+        def result = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .buildAndFail()
+
+        then:
+        result.task(":zipShare").outcome == TaskOutcome.FAILED
+        result.output.contains("is not the published artifact")
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test publish component build - skip unchanged artifacts - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+
+        String testGroupName = 'com.intershop.test'
+        String testVersion = '1.0.0'
+
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'maven-publish'
+            id 'com.intershop.gradle.cartridge'
+        }
+
+        group = '${testGroupName}'
+        version = '${testVersion}'
+
+        intershop {
+            skipUnchangedArtifacts = true
+
+            packages {
+                share()
+                cartridge()
+            }
+        }
+
+        publishing {
+            repositories {
+                maven {
+                    url "\${rootProject.buildDir}/repo"
+                }
+            }
+        }
+
+        """.stripIndent()
+
+        File checksumsFile = new File(testProjectDir, "build/${IntershopExtension.PUBLICATIONS_DIR}/mvnIntershop/${IntershopExtension.PUBLICATION_CHECKSUMS}")
+        File usersFile = new File(testProjectDir, "staticfiles/share/sites/${projectName}/units/root/impex/src/Users.xml")
+
+        String pluginRepoDir = "build/repo/${testGroupName.split('\\.').join('/')}/${projectName}/${testVersion}/${projectName}-${testVersion}"
+
+        File repoCartridgeZip = new File(testProjectDir, "${pluginRepoDir}-cartridge.zip")
+        File repoShareZip = new File(testProjectDir, "${pluginRepoDir}-share.zip")
+        File repoPomDescriptor = new File(testProjectDir, "${pluginRepoDir}.pom")
+
+        List<String> args = ['publish', '-s', '-i']
+
+        when:
+        def result1 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        def checksums = new groovy.json.JsonSlurper().parse(checksumsFile)
+
+        then:
+        result1.task(":generateChecksumsForMvnIntershopPublication").outcome == TaskOutcome.SUCCESS
+        result1.task(":publishMvnIntershopPublicationToMavenRepository").outcome == TaskOutcome.SUCCESS
+        repoCartridgeZip.exists()
+        repoShareZip.exists()
+        checksums.publication == 'mvnIntershop'
+        ArtifactChecksums.isSame(checksums.artifacts.find { it.key == 'share:zip' }.sha1, new File("${repoShareZip.path}.sha1").text.trim())
+
+        when:
+        // published files are marked, so that a new upload is detected
+        long publishedTime = System.currentTimeMillis() - 86400000L
+        [repoCartridgeZip, repoShareZip, repoPomDescriptor].each { it.setLastModified(publishedTime) }
+
+        def result2 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result2.task(":publishMvnIntershopPublicationToMavenRepository").outcome == TaskOutcome.SUCCESS
+        result2.output.contains("unchanged artifact(s) skipped")
+        repoCartridgeZip.lastModified() == publishedTime
+        repoShareZip.lastModified() == publishedTime
+        repoPomDescriptor.lastModified() != publishedTime
+
+        when:
+        usersFile << '// changed content'
+        def result3 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result3.task(":zipShare").outcome == TaskOutcome.SUCCESS
+        result3.task(":publishMvnIntershopPublicationToMavenRepository").outcome == TaskOutcome.SUCCESS
+        repoCartridgeZip.lastModified() == publishedTime
+        repoShareZip.lastModified() != publishedTime
+        new java.util.zip.ZipFile(repoShareZip).with { zf ->
+            zf.getInputStream(zf.getEntry("sites/${projectName}/units/root/impex/src/Users.xml".toString())).text.endsWith('// changed content')
+        }
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+
+    @Unroll
+    def 'Test publish component build - SNAPSHOT artifacts are published completely - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+
+        String testGroupName = 'com.intershop.test'
+        String testVersion = '1.0.0-SNAPSHOT'
+
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'maven-publish'
+            id 'com.intershop.gradle.cartridge'
+        }
+
+        group = '${testGroupName}'
+        version = '${testVersion}'
+
+        intershop {
+            skipUnchangedArtifacts = true
+
+            packages {
+                share()
+                cartridge()
+            }
+        }
+
+        publishing {
+            repositories {
+                maven {
+                    url "\${rootProject.buildDir}/repo"
+                }
+            }
+        }
+
+        """.stripIndent()
+
+        File repoDir = new File(testProjectDir, 'build/repo')
+
+        // the zips are resolved from the repository after the second publish
+        File consumerDir = new File(testProjectDir, 'consumer')
+        consumerDir.mkdirs()
+        new File(consumerDir, 'settings.gradle') << "rootProject.name = 'consumer'"
+        new File(consumerDir, 'build.gradle') << """
+        repositories {
+            maven {
+                url '${repoDir.toURI()}'
+            }
+        }
+
+        configurations {
+            components
+        }
+
+        dependencies {
+            components '${testGroupName}:${projectName}:${testVersion}:share@zip'
+            components '${testGroupName}:${projectName}:${testVersion}:cartridge@zip'
+        }
+
+        task resolveComponents(type: Copy) {
+            from configurations.components
+            into "\${buildDir}/components"
+        }
+        """.stripIndent()
+
+        List<String> args = ['publish', '-s', '-i']
+
+        when:
+        def result1 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+        def result2 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result1.task(":publishMvnIntershopPublicationToMavenRepository").outcome == TaskOutcome.SUCCESS
+        result2.task(":publishMvnIntershopPublicationToMavenRepository").outcome == TaskOutcome.SUCCESS
+        ! result2.output.contains("unchanged artifact(s) skipped")
+
+        when:
+        def result3 = getPreparedGradleRunner()
+                .withProjectDir(consumerDir)
+                .withArguments(['resolveComponents', '-s', '--refresh-dependencies'])
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        File componentsDir = new File(consumerDir, 'build/components')
+
+        then:
+        result3.task(":resolveComponents").outcome == TaskOutcome.SUCCESS
+        componentsDir.listFiles().findAll { it.name.endsWith('-share.zip') }.size() == 1
+        componentsDir.listFiles().findAll { it.name.endsWith('-cartridge.zip') }.size() == 1
 
         where:
         gradleVersion << supportedGradleVersions
     }
 
     @Unroll
-    def 'Test publish component build - maven happy path - #gradleVersion'(gradleVersion) {
+    def 'Test publish component build - descriptor properties - #gradleVersion'(gradleVersion) {
         given:
         String projectName = "testproject"
 
         ComponentUtility.prepareCartridge(testProjectDir, projectName)
-
-        String testGroupName = 'com.intershop.test'
-        String testVersion = '1.0.0'
-
         createSettingsGradle(projectName)
 
         buildFile  << """
         plugins {
+            id 'ivy-publish'
             id 'maven-publish'
             id 'com.intershop.gradle.cartridge'
         }
-        
-        group = '${testGroupName}'
-        version = '${testVersion}'
+
+        group = 'com.intershop.test'
+        version = '1.0.0'
 
         intershop {
+            displayName = 'Test Cartridge'
+            description = 'Cartridge for <tests> & more'
+
             packages {
                 share()
-                cartridge()
             }
         }
-        
+
         publishing {
             repositories {
                 maven {
-                    url "\${rootProject.buildDir}/repo"
+                    url "\${rootProject.buildDir}/mvnrepo"
+                }
+                ivy {
+                    url "\${rootProject.buildDir}/ivyrepo"
                 }
             }
         }
-        
         """.stripIndent()
 
-        String pluginBuildDir = "build/${IntershopExtension.MAIN_OUTPUTDIR_NAME}"
-
-        File cartridgeZip = new File(testProjectDir, "${pluginBuildDir}/cartridge/${projectName}-cartridge-${testVersion}.zip")
-        File shareZip = new File(testProjectDir, "${pluginBuildDir}/share/${projectName}-share-${testVersion}.zip")
+        File ivyFile = new File(testProjectDir, "build/publications/ivyIntershop/ivy.xml")
         File pomFile = new File(testProjectDir, "build/publications/mvnIntershop/pom-default.xml")
 
-        String pluginRepoDir = "build/repo/${testGroupName.split('\\.').join('/')}/${projectName}/${testVersion}/${projectName}-${testVersion}"
-
-        File repoCartridgeZip = new File(testProjectDir, "${pluginRepoDir}-cartridge.zip")
-        File repoShareZip = new File(testProjectDir, "${pluginRepoDir}-share.zip")
-        File repoJarFile = new File(testProjectDir, "${pluginRepoDir}-testfile.jar")
-        File repoDeployFile = new File(testProjectDir, "${pluginRepoDir}-deploy-gradle.gradle")
-        File repoPomDescriptor = new File(testProjectDir, "${pluginRepoDir}.pom")
-
         when:
-        List<String> args = ['publish', '-s', '-i']
-        def result1 = getPreparedGradleRunner()
+        List<String> args = ['generateDescriptorFileForIvyIntershopPublication', 'generatePomFileForMvnIntershopPublication', '-s', '-i']
+        def result = getPreparedGradleRunner()
                 .withArguments(args)
                 .withGradleVersion(gradleVersion)
                 .build()
 
-        then:
-        // check tasks
-        result1.task(":zipCartridge").outcome == TaskOutcome.SUCCESS
-        result1.task(":zipShare").outcome == TaskOutcome.SUCCESS
-        result1.task(":publishMvnIntershopPublicationToMavenRepository").outcome == TaskOutcome.SUCCESS
-        result1.task(":publish").outcome == TaskOutcome.SUCCESS
-
-        // check files
-        cartridgeZip.exists()
-        shareZip.exists()
-        pomFile.exists()
-
-        repoCartridgeZip.exists()
-        repoShareZip.exists()
-        repoJarFile.exists()
-        repoDeployFile.exists()
-        repoPomDescriptor.exists()
-
-        // check content
-        repoDeployFile.text == new File(testProjectDir, "deployment/deploy.gradle").text
-
-        dumpZipContent(repoShareZip).contains("sites/${projectName}/units/root/impex/config/Users.xml".toString())
-        dumpZipContent(repoShareZip).contains("sites/${projectName}/units/root/impex/src/Users.xml".toString())
-        dumpZipContent(repoCartridgeZip).contains("${projectName}/release/pipelines/testpipeline.pipeline".toString())
-        !dumpZipContent(repoCartridgeZip).contains("${projectName}/release/lib/testfile.jar".toString())
-
-        pomFile.text.contains("<cartridge-displayname>${projectName}</cartridge-displayname>".toString())
-
-        when:
-        def result2 = getPreparedGradleRunner()
-                .withArguments(args)
-                .withGradleVersion(gradleVersion)
-                .build()
+        def ivy = new XmlSlurper().parse(ivyFile)
+        def pom = new XmlSlurper().parse(pomFile)
 
         then:
-        result2.task(":zipCartridge").outcome == TaskOutcome.UP_TO_DATE
-        result2.task(":zipShare").outcome == TaskOutcome.UP_TO_DATE
-        result2.task(":publishMvnIntershopPublicationToMavenRepository").outcome == TaskOutcome.SUCCESS
-        result2.task(":publish").outcome == TaskOutcome.SUCCESS
+        result.task(":generateDescriptorFileForIvyIntershopPublication").outcome == TaskOutcome.SUCCESS
+        ivyFile.text.contains('<ivy-module xmlns:e="http://ant.apache.org/ivy/extra"')
+        ivy.info.description.text() == 'Cartridge for <tests> & more'
+        ivy.info.displayName.text() == 'Test Cartridge'
+        ivy.info.description.size() == 1
+
+        result.task(":generatePomFileForMvnIntershopPublication").outcome == TaskOutcome.SUCCESS
+        pom.properties.'cartridge-displayname'.text() == 'Test Cartridge'
+        pom.properties.'cartridge-description'.text() == 'Cartridge for <tests> & more'
 
         where:
         gradleVersion << supportedGradleVersions
@@ -972,6 +2049,263 @@ class ICMComponentPluginIntSpec extends AbstractIntegrationSpec {
         gradleVersion << supportedGradleVersions
     }
 
+    @Unroll
+    def 'Test validate component build - files of local and share directories without packages - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        ComponentUtility.prepareFolders(testProjectDir, 'staticfiles/local/root/bin', projectName, 'start.sh', '# start script')
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+        
+        intershop {
+            packages {
+               cartridge()
+            }
+        }
+        
+        """.stripIndent()
+
+        when:
+        List<String> args = ['validateCartridge', '-s']
+        def result1 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result1.task(":validateCartridge").outcome == TaskOutcome.SUCCESS
+        result1.output.contains("There are 1 local file(s) and no local package.")
+        result1.output.contains("-> Add configuration 'local' to Intershop extension.")
+        result1.output.contains("There are 2 share file(s) and no share package.")
+        result1.output.contains("-> Add configuration 'share' to Intershop extension.")
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test validate component build - report and up-to-date check - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+        
+        intershop {
+            packages {
+               share()
+               cartridge()
+            }
+        }
+        
+        """.stripIndent()
+
+        when:
+        List<String> args = ['validateCartridge', '-s']
+        def result1 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+        def result2 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        File reportFile = new File(testProjectDir, "build/${IntershopExtension.VALIDATION_REPORT}")
+        def report = new groovy.json.JsonSlurper().parse(reportFile)
+
+        then:
+        result1.task(":validateCartridge").outcome == TaskOutcome.SUCCESS
+        result2.task(":validateCartridge").outcome == TaskOutcome.UP_TO_DATE
+        report.cartridge == projectName
+        report.packages.share.configuredPackages == 1
+        report.packages.share.validPackages == 1
+        report.errors.isEmpty()
+
+        when:
+        new File(testProjectDir, "staticfiles/share/sites/${projectName}/units/root/impex/src/Groups.xml") << "<groups/>"
+        def result3 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        then:
+        result3.task(":validateCartridge").outcome == TaskOutcome.SUCCESS
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test validate all cartridges of a multi project build - #gradleVersion'(gradleVersion) {
+        given:
+        ['cartridge1', 'cartridge2'].each { String cartridgeName ->
+            ComponentUtility.prepareCartridge(new File(testProjectDir, cartridgeName), cartridgeName)
+            ComponentUtility.prepareLocalOSspecificFiles(new File(testProjectDir, cartridgeName), cartridgeName)
+        }
+        // cartridge without local and share files
+        ComponentUtility.prepareStaticCartridgFolder(new File(testProjectDir, 'cartridge3'), 'cartridge3')
+
+        new File(testProjectDir, 'settings.gradle') << """
+        rootProject.name = 'testassembly'
+        include 'cartridge1', 'cartridge2', 'cartridge3'
+        """.stripIndent()
+
+        buildFile  << """
+        subprojects {
+            apply plugin: 'com.intershop.gradle.cartridge'
+        
+            intershop {
+                packages {
+                   local()
+                   share()
+                   cartridge()
+                }
+            }
+        }
+        
+        validateCartridges {
+            maxParallelValidations = 2
+            failFast = false
+        }
+        """.stripIndent()
+
+        when:
+        List<String> args = ['validateCartridges', '-s']
+        def result1 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .buildAndFail()
+
+        File reportFile = new File(testProjectDir, "build/${IntershopExtension.VALIDATION_AGGREGATE_REPORT}")
+        def report = new groovy.json.JsonSlurper().parse(reportFile)
+
+        then:
+        result1.task(":validateCartridges").outcome == TaskOutcome.FAILED
+        result1.task(":cartridge1:validateCartridge") == null
+        result1.output.contains("Intershop Cartridge 'cartridge3' configuration - ERRORS")
+        result1.output.contains("Local package is empty!")
+        result1.output.contains("Share package is empty!")
+        report.status == 'ERROR'
+        report.validatedCartridges == 3
+        report.cartridges*.cartridge == ['cartridge1', 'cartridge2', 'cartridge3']
+        report.cartridges*.status == ['OK', 'OK', 'ERROR']
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    @Unroll
+    def 'Test packaging metrics of a component build - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        ComponentUtility.prepareLocalOSspecificFiles(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+        
+        intershop {
+            packages {
+               local()
+               share()
+               cartridge()
+            }
+        }
+        """.stripIndent()
+
+        when:
+        List<String> args = ['zipShare', 'zipCartridge', 'validateCartridge', 'packagingMetrics', '-s']
+        def result1 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        def slurper = new groovy.json.JsonSlurper()
+        def shareMetrics = slurper.parse(new File(testProjectDir, "build/${IntershopExtension.METRICS_DIR}/zipShare.json"))
+        def cartridgeMetrics = slurper.parse(new File(testProjectDir, "build/${IntershopExtension.METRICS_DIR}/zipCartridge.json"))
+        def validationMetrics = slurper.parse(new File(testProjectDir, "build/${IntershopExtension.METRICS_DIR}/validateCartridge.json"))
+        def report = slurper.parse(new File(testProjectDir, "build/${IntershopExtension.METRICS_REPORT}"))
+
+        then:
+        result1.task(":packagingMetrics").outcome == TaskOutcome.SUCCESS
+        shareMetrics.task == ':zipShare'
+        shareMetrics.packages[0].name == 'share'
+        shareMetrics.packages[0].fileCount == 2
+        shareMetrics.packages[0].bytesWritten > 0
+        cartridgeMetrics.packages[0].excludedStaticLibs == 1
+        validationMetrics.packages*.name.sort() == ['cartridge', 'local', 'share']
+        report.totals.tasks == 3
+        report.totals.fileCount == shareMetrics.packages[0].fileCount + cartridgeMetrics.packages[0].fileCount
+        report.tasks*.task.sort() == [':validateCartridge', ':zipCartridge', ':zipShare']
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+
+    @Unroll
+    def 'Test packaging metrics contain only configured tasks - #gradleVersion'(gradleVersion) {
+        given:
+        String projectName = "testproject"
+
+        ComponentUtility.prepareCartridge(testProjectDir, projectName)
+        createSettingsGradle(projectName)
+
+        buildFile  << """
+        plugins {
+            id 'com.intershop.gradle.cartridge'
+        }
+        
+        intershop {
+            packages {
+               cartridge()
+            }
+        }
+        """.stripIndent()
+
+        // metrics of a package, that was removed from the build
+        File staleMetrics = new File(testProjectDir, "build/${IntershopExtension.METRICS_DIR}/zipShare.json")
+        staleMetrics.parentFile.mkdirs()
+        staleMetrics << '{"task":":zipShare","packages":[{"name":"share","fileCount":5,"wallTime":1}]}'
+
+        when:
+        List<String> args = ['validateCartridges', 'packagingMetrics', '-s']
+        def result1 = getPreparedGradleRunner()
+                .withArguments(args)
+                .withGradleVersion(gradleVersion)
+                .build()
+
+        def slurper = new groovy.json.JsonSlurper()
+        def validationMetrics = slurper.parse(new File(testProjectDir, "build/${IntershopExtension.METRICS_DIR}/validateCartridges.json"))
+        def report = slurper.parse(new File(testProjectDir, "build/${IntershopExtension.METRICS_REPORT}"))
+
+        then:
+        result1.task(":validateCartridges").outcome == TaskOutcome.SUCCESS
+        result1.task(":packagingMetrics").outcome == TaskOutcome.SUCCESS
+        validationMetrics.task == ':validateCartridges'
+        validationMetrics.packages*.name == [projectName]
+        report.tasks*.task == [':validateCartridges']
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
     File createSettingsGradle(String projectName) {
         File settingsFile = new File(testProjectDir, 'settings.gradle')
         settingsFile << """
@@ -981,6 +2315,15 @@ class ICMComponentPluginIntSpec extends AbstractIntegrationSpec {
         return settingsFile
     }
 
+    int getZipEntryMethod(File zipFile, String path) {
+        def zf = new java.util.zip.ZipFile(zipFile)
+        try {
+            return zf.getEntry(path).method
+        } finally {
+            zf.close()
+        }
+    }
+
     List<String> dumpZipContent(File zipFIle) {
         List<String> entries = []
         def zf = new java.util.zip.ZipFile(zipFIle)
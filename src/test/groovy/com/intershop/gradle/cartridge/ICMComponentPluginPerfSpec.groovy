@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Intershop Communications AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intershop.gradle.cartridge
+
+import com.intershop.gradle.cartridge.extension.IntershopExtension
+import com.intershop.gradle.test.AbstractIntegrationSpec
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.TaskOutcome
+import spock.lang.Requires
+import spock.lang.Unroll
+
+/**
+ * Measures configuration, validation and packaging time of a
+ * large synthetic multi project build. The spec runs only with
+ * the task 'performanceTest'. The results are added to a JSON
+ * file with the results of previous plugin versions.
+ */
+@Requires({ Boolean.getBoolean('intershop.performance.test') })
+class ICMComponentPluginPerfSpec extends AbstractIntegrationSpec {
+
+    final static int CARTRIDGES = Integer.getInteger('intershop.performance.cartridges', 200)
+    final static int FILES_PER_FOLDER = Integer.getInteger('intershop.performance.files', 20)
+    final static int FILE_SIZE = Integer.getInteger('intershop.performance.fileSize', 4096)
+
+    final static String PLUGIN_VERSION = System.getProperty('intershop.performance.version', 'unspecified')
+    final static String RESULTS_FILE = System.getProperty('intershop.performance.results')
+    final static String MAX_REGRESSION = System.getProperty('intershop.performance.maxRegression')
+
+    @Unroll
+    def 'Test performance of a large component build - #gradleVersion'(gradleVersion) {
+        given:
+        ComponentUtility.prepareSyntheticBuild(testProjectDir, CARTRIDGES, FILES_PER_FOLDER, FILE_SIZE)
+
+        when:
+        // the first run starts the daemon and compiles the build scripts
+        runBuild(gradleVersion, ['help'])
+        long configurationTime = measure { runBuild(gradleVersion, ['help']) }
+
+        BuildResult validationResult
+        long validationTime = measure { validationResult = runBuild(gradleVersion, ['validateCartridges']) }
+
+        BuildResult packagingResult
+        long packagingTime = measure { packagingResult = runBuild(gradleVersion, ['zipLocal', 'zipShare', 'zipCartridge', 'packagingMetrics']) }
+
+        def metrics = new JsonSlurper().parse(new File(testProjectDir, "build/${IntershopExtension.METRICS_REPORT}"))
+
+        Map<String, Object> result = [
+                version: PLUGIN_VERSION,
+                gradleVersion: gradleVersion,
+                date: new Date().format("yyyy-MM-dd'T'HH:mm:ssZ"),
+                cartridges: CARTRIDGES,
+                filesPerFolder: FILES_PER_FOLDER,
+                fileSize: FILE_SIZE,
+                configurationTime: configurationTime,
+                validationTime: validationTime,
+                packagingTime: packagingTime,
+                packagingCpuTime: metrics.totals.cpuTime,
+                bytesWritten: metrics.totals.bytesWritten ]
+        Map<String, Object> previous = addResult(result)
+
+        then:
+        validationResult.task(':validateCartridges').outcome == TaskOutcome.SUCCESS
+        packagingResult.task(':packagingMetrics').outcome == TaskOutcome.SUCCESS
+        metrics.totals.tasks == CARTRIDGES * 3
+        ! isRegression(previous, result, 'configurationTime')
+        ! isRegression(previous, result, 'validationTime')
+        ! isRegression(previous, result, 'packagingTime')
+
+        where:
+        gradleVersion << supportedGradleVersions
+    }
+
+    BuildResult runBuild(String gradleVersion, List<String> tasks) {
+        return getPreparedGradleRunner()
+                .withArguments(tasks + ['--parallel', '-s'])
+                .withGradleVersion(gradleVersion)
+                .build()
+    }
+
+    static long measure(Closure action) {
+        long start = System.nanoTime()
+        action.call()
+        return (System.nanoTime() - start).intdiv(1000000L)
+    }
+
+    /**
+     * Adds the result to the results file and returns the last
+     * result of another plugin version with the same scale.
+     */
+    static Map<String, Object> addResult(Map<String, Object> result) {
+        println "Performance of plugin version ${result.version}: ${JsonOutput.toJson(result)}"
+        if(! RESULTS_FILE) {
+            return null
+        }
+
+        File resultsFile = new File(RESULTS_FILE)
+        List<Map<String, Object>> results = resultsFile.isFile() ? new JsonSlurper().parse(resultsFile) as List : []
+        Map<String, Object> previous = results.reverse().find { Map<String, Object> entry ->
+            entry.version != result.version && entry.gradleVersion == result.gradleVersion &&
+                    entry.cartridges == result.cartridges && entry.filesPerFolder == result.filesPerFolder &&
+                    entry.fileSize == result.fileSize
+        }
+
+        results.add(result)
+        resultsFile.parentFile.mkdirs()
+        resultsFile.text = JsonOutput.prettyPrint(JsonOutput.toJson(results))
+        return previous
+    }
+
+    /**
+     * A regression is detected, if a maximum factor is configured
+     * and the time is larger than the time of the previous version
+     * multiplied with this factor.
+     */
+    static boolean isRegression(Map<String, Object> previous, Map<String, Object> result, String key) {
+        if(previous == null || ! MAX_REGRESSION) {
+            return false
+        }
+        double factor = Double.parseDouble(MAX_REGRESSION)
+        boolean regression = (result[key] as long) > (previous[key] as long) * factor
+        if(regression) {
+            println "Regression of ${key}: ${result[key]} ms with ${result.version}, ${previous[key]} ms with ${previous.version}"
+        }
+        return regression
+    }
+}
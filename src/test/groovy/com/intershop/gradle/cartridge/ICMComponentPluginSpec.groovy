@@ -15,8 +15,19 @@
  */
 package com.intershop.gradle.cartridge
 
+import com.intershop.gradle.cartridge.extension.ComponentPackage
+import com.intershop.gradle.cartridge.extension.IntershopExtension
+import com.intershop.gradle.cartridge.extension.PackageContainer
+import com.intershop.gradle.cartridge.task.ExplodeComponent
+import com.intershop.gradle.cartridge.task.WatchComponents
+import com.intershop.gradle.cartridge.task.ZipComponent
+import com.intershop.gradle.cartridge.util.ComponentArtifacts
 import com.intershop.gradle.test.AbstractProjectSpec
 import org.gradle.api.Plugin
+import org.gradle.api.publish.PublishingExtension
+import org.gradle.api.publish.ivy.IvyPublication
+import org.gradle.api.publish.maven.MavenArtifact
+import org.gradle.api.publish.maven.MavenPublication
 
 class ICMComponentPluginSpec extends AbstractProjectSpec {
 
@@ -24,4 +35,199 @@ class ICMComponentPluginSpec extends AbstractProjectSpec {
     Plugin getPlugin() {
         return new CartridgePlugin()
     }
+
+    def 'zip tasks of packages are registered without creation'() {
+        given:
+        int configuredTasks = 0
+
+        when:
+        project.pluginManager.apply(CartridgePlugin)
+        project.tasks.withType(ZipComponent).configureEach { configuredTasks++ }
+        project.extensions.getByType(IntershopExtension).packages {
+            share()
+            cartridge()
+        }
+
+        then:
+        project.tasks.names.containsAll(['zipShare', 'zipCartridge'])
+        configuredTasks == 0
+
+        when:
+        ZipComponent task = project.tasks.getByName('zipShare')
+
+        then:
+        configuredTasks == 1
+        task.group == IntershopExtension.ICMCOMPONENT_GROUP_NAME
+        task.artifactAppendix == 'share'
+    }
+
+    def 'maven publication contains packages without creation of zip tasks'() {
+        given:
+        int configuredTasks = 0
+
+        when:
+        project.pluginManager.apply('maven-publish')
+        project.pluginManager.apply(CartridgePlugin)
+        project.tasks.withType(ZipComponent).configureEach { configuredTasks++ }
+        project.extensions.getByType(IntershopExtension).packages {
+            share()
+        }
+        project.evaluate()
+
+        MavenPublication publication = project.extensions.getByType(PublishingExtension).publications.getByName(IntershopExtension.DEFAULT_MAVENPUBLICATION)
+        MavenArtifact artifact = publication.artifacts.find { it.classifier == 'share' }
+
+        then:
+        artifact != null
+        artifact.extension == 'zip'
+        artifact.file == new File(project.buildDir, "${IntershopExtension.MAIN_OUTPUTDIR_NAME}/share/${project.name}-share-unspecified.zip")
+        configuredTasks == 0
+    }
+
+    def 'archive file of a package is calculated without changes of the task'() {
+        when:
+        project.pluginManager.apply(CartridgePlugin)
+        project.extensions.getByType(IntershopExtension).packages.share()
+
+        ZipComponent task = project.tasks.getByName('zipShare')
+        File archivePath = task.archivePath
+
+        then:
+        archivePath == new File(project.buildDir, "${IntershopExtension.MAIN_OUTPUTDIR_NAME}/share/${project.name}-share-unspecified.zip")
+        task.archiveFile.get().asFile == archivePath
+        task.destinationDir == archivePath.parentFile
+        task.baseName == project.name
+        task.appendix == 'share'
+
+        when:
+        project.buildDir = new File(project.projectDir, 'otherBuild')
+
+        then:
+        task.archivePath == new File(project.buildDir, "${IntershopExtension.MAIN_OUTPUTDIR_NAME}/share/${project.name}-share-unspecified.zip")
+    }
+
+    def 'maven and ivy publication use the same resolved artifacts'() {
+        given:
+        File staticLib = new File(project.projectDir, 'staticfiles/cartridge/lib/testlib.jar')
+        staticLib.parentFile.mkdirs()
+        staticLib << 'jar'
+        File deploymentFile = new File(project.projectDir, IntershopExtension.DEPLOYGRADLE)
+        deploymentFile.parentFile.mkdirs()
+        deploymentFile << '// deployment'
+
+        when:
+        project.pluginManager.apply('maven-publish')
+        project.pluginManager.apply('ivy-publish')
+        project.pluginManager.apply(CartridgePlugin)
+        project.extensions.getByType(IntershopExtension).packages {
+            share()
+            createLocal('linux.x86_64') { }
+        }
+        project.evaluate()
+
+        def publications = project.extensions.getByType(PublishingExtension).publications
+        MavenPublication mvnPublication = publications.getByName(IntershopExtension.DEFAULT_MAVENPUBLICATION)
+        IvyPublication ivyPublication = publications.getByName(IntershopExtension.DEFAULT_IVYPUBLICATION)
+
+        then:
+        mvnPublication.artifacts*.file as Set == ivyPublication.artifacts*.file as Set
+        mvnPublication.artifacts.find { it.file == staticLib }.classifier == 'testlib'
+        ivyPublication.artifacts.find { it.file == staticLib }.name == 'testlib'
+        mvnPublication.artifacts.find { it.file == deploymentFile }.classifier == 'deploy-gradle'
+        ivyPublication.artifacts.find { it.file == deploymentFile }.name == 'deploy'
+        mvnPublication.artifacts.find { it.classifier == 'local_linux.x86_64' } != null
+        ivyPublication.artifacts.find { it.type == 'local' }.classifier == 'linux.x86_64'
+        ivyPublication.artifacts.find { it.type == 'share' }.classifier == null
+    }
+
+    def 'component artifacts are resolved only once'() {
+        given:
+        File libDir = new File(project.projectDir, 'staticfiles/cartridge/lib')
+        libDir.mkdirs()
+        new File(libDir, 'testlib1.jar') << 'jar'
+
+        project.pluginManager.apply(CartridgePlugin)
+        IntershopExtension extension = project.extensions.getByType(IntershopExtension)
+        extension.packages.share()
+        ComponentArtifacts artifacts = new ComponentArtifacts(project, extension)
+
+        when:
+        List<ComponentArtifacts.FileArtifact> staticLibs = artifacts.staticLibs
+        new File(libDir, 'testlib2.jar') << 'jar'
+
+        then:
+        staticLibs*.name == ['testlib1']
+        artifacts.staticLibs.is(staticLibs)
+        artifacts.packages*.mavenClassifier == ['share']
+        artifacts.deploymentFile == null
+    }
+
+    def 'packages of a matrix share compressed entries'() {
+        when:
+        project.pluginManager.apply(CartridgePlugin)
+        PackageContainer packages = project.extensions.getByType(IntershopExtension).packages
+        List<ComponentPackage> matrix = packages.createLocalMatrix(['win.x86_64', 'linux.x86_64']) {
+            compressionLevel = 9
+        }
+        packages.share()
+
+        ZipComponent winTask = project.tasks.getByName('zipLocal_win.x86_64')
+        ZipComponent linuxTask = project.tasks.getByName('zipLocal_linux.x86_64')
+        ZipComponent shareTask = project.tasks.getByName('zipShare')
+
+        then:
+        matrix*.osExtension == ['win.x86_64', 'linux.x86_64']
+        matrix*.matrixName == ['local', 'local']
+        matrix*.compressionLevel == [9, 9]
+        packages.getMatrixPackages('local') as Set == matrix as Set
+        winTask.sharedEntryCacheDir == new File(project.buildDir, IntershopExtension.SHARED_ENTRIES_DIR)
+        linuxTask.sharedEntryCacheDir == winTask.sharedEntryCacheDir
+        shareTask.sharedEntryCacheDir == null
+        linuxTask.mustRunAfter.getDependencies(linuxTask) == [winTask] as Set
+        winTask.mustRunAfter.getDependencies(winTask).isEmpty()
+    }
+
+    def 'watch mode depends on the zip tasks of the watched packages'() {
+        when:
+        project.pluginManager.apply(CartridgePlugin)
+        project.extensions.getByType(IntershopExtension).packages {
+            share()
+            cartridge()
+        }
+        WatchComponents task = project.tasks.getByName('watchComponents')
+
+        then:
+        task.zipTaskNames as Set == ['zipShare', 'zipCartridge'] as Set
+        task.idleTimeout == 0
+
+        when:
+        task.packageNames = ['share']
+
+        then:
+        task.zipTaskNames == ['zipShare']
+        task.taskDependencies.getDependencies(task)*.name == ['zipShare']
+    }
+
+    def 'exploded packages are synchronized by the explode tasks'() {
+        when:
+        project.pluginManager.apply(CartridgePlugin)
+        project.extensions.getByType(IntershopExtension).packages {
+            share()
+            cartridge {
+                exploded = true
+            }
+        }
+        ExplodeComponent explodeTask = project.tasks.getByName('explodeCartridge')
+        def lifecycleTask = project.tasks.getByName('explodeComponents')
+        WatchComponents watchTask = project.tasks.getByName('watchComponents')
+
+        then:
+        project.tasks.names.contains('explodeShare')
+        explodeTask.releaseDirName == "${project.name}/release".toString()
+        explodeTask.destinationDir.get().asFile == new File(project.buildDir, "${IntershopExtension.EXPLODED_DIR}/cartridge")
+        !explodeTask.hardLinks
+        lifecycleTask.taskDependencies.getDependencies(lifecycleTask)*.name == ['explodeCartridge']
+        watchTask.zipTaskNames == ['zipShare']
+        watchTask.explodeTaskNames == ['explodeCartridge']
+    }
 }